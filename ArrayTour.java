@@ -0,0 +1,153 @@
+/**
+ * A tour kept as an array of vertices in order of travel, with the position
+ * of each vertex in the array. Moving through the tour is a lookup, and a
+ * 2-opt move reverses the shorter of the two paths it joins, which is up to
+ * half of the tour.
+ */
+public class ArrayTour implements Tour {
+
+    private final int[] order;
+    private final int[] position;
+    private final int start;
+
+    /**
+     * Constructor. Creates the tour from the vertices in order of travel.
+     * @param order of vertex indices in order of travel.
+     */
+    public ArrayTour(int[] order){
+
+        this.order = order.clone();
+        this.position = new int[order.length];
+        this.start = order.length > 0 ? order[0] : -1;
+
+        for(int i = 0; i < order.length; i++){
+            position[order[i]] = i;
+        }
+    }
+
+    /**
+     * Returns the number of vertices in the tour.
+     * @return size of the tour.
+     */
+    @Override
+    public int size(){
+        return order.length;
+    }
+
+    /**
+     * Returns the vertex after a vertex in the tour.
+     * @param vertex in the tour.
+     * @return next vertex.
+     */
+    @Override
+    public int next(int vertex){
+
+        int i = position[vertex] + 1;
+        return order[i == order.length ? 0 : i];
+    }
+
+    /**
+     * Returns the vertex before a vertex in the tour.
+     * @param vertex in the tour.
+     * @return previous vertex.
+     */
+    @Override
+    public int prev(int vertex){
+
+        int i = position[vertex];
+        return order[i == 0 ? order.length - 1 : i - 1];
+    }
+
+    /**
+     * Checks if b is reached on the way forward through the tour from a to
+     * c, including at either end.
+     * @param a vertex to start from.
+     * @param b vertex to check.
+     * @param c vertex to stop at.
+     * @return true if b is between a and c and false otherwise.
+     */
+    @Override
+    public boolean between(int a, int b, int c){
+
+        int i = position[a];
+        int j = position[b];
+        int k = position[c];
+
+        if(i <= k){
+            return i <= j && j <= k;
+        }
+        return j >= i || j <= k;
+    }
+
+    /**
+     * Replaces the tour edges (a, b) and (c, d) with (a, c) and (b, d), where
+     * b follows a and d follows c in the same direction through the tour.
+     * @param a vertex of the first edge.
+     * @param b vertex after a.
+     * @param c vertex of the second edge.
+     * @param d vertex after c.
+     */
+    @Override
+    public void flip(int a, int b, int c, int d){
+
+        if(next(a) == b){
+            reverse(position[b], position[c]);
+        } else {
+            reverse(position[c], position[b]);
+        }
+    }
+
+    /**
+     * Returns the vertices in order of travel, starting from the vertex the
+     * tour was created with.
+     * @return vertex indices in order of travel.
+     */
+    @Override
+    public int[] toArray(){
+
+        int[] vertices = new int[order.length];
+        int first = order.length > 0 ? position[start] : 0;
+
+        for(int i = 0; i < order.length; i++){
+            vertices[i] = order[(first + i) % order.length];
+        }
+
+        return vertices;
+    }
+
+    /**
+     * Reverses the portion of the tour from position i forward to position
+     * j, keeping the position of each vertex up to date. The shorter of the
+     * portion and the rest of the tour is reversed, as either one gives the
+     * same tour.
+     * @param i position of the first vertex of the portion
+     * @param j position of the last vertex of the portion
+     */
+    private void reverse(int i, int j){
+
+        int n = order.length;
+        int length = (j - i + n) % n + 1;
+
+        // Reverse the rest of the tour instead if it is shorter
+        if(length * 2 > n){
+            int start = (j + 1) % n;
+            j = (i - 1 + n) % n;
+            i = start;
+            length = n - length;
+        }
+
+        int swap;
+
+        for(int step = 0; step < length / 2; step++){
+
+            swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+            position[order[i]] = i;
+            position[order[j]] = j;
+
+            i = (i + 1) % n;
+            j = (j - 1 + n) % n;
+        }
+    }
+}
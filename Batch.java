@@ -0,0 +1,400 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Solves every instance listed in a manifest in one JVM, sharing a pool of
+ * worker threads, so the JVM starts and the JIT compiler warms up once for
+ * the whole batch. Each line of the manifest holds the command line
+ * arguments of one run, the file name, algorithm, maximum run time and
+ * optimal tour length followed by any optional settings, for example
+ *
+ *      tsp_example_1.txt NNR2OPT MTS-60 108159 NEIGHBORS-8
+ *
+ * Blank lines and lines starting with # are skipped, and so are lines with an
+ * unknown algorithm or setting. Relative file names are
+ * found from the folder of the manifest. The longest time limits are started
+ * first, with the runs without a limit before them, so the short runs fill
+ * in the workers at the end of the batch. Each run writes its .tour file as
+ * a single run does, and a summary of every run is printed at the end. The
+ * memory budget for the distances of each graph is shared out between the
+ * workers, so the graphs solved at the same time fit in the heap together.
+ */
+public class Batch {
+
+    private static final String WORKERS = "WORKERS";
+    private static final String THREADS = "THREADS";
+    private static final String COMMENT = "#";
+
+    /**
+     * Runs the batch given on the command line, the manifest file name
+     * followed by an optional WORKERS-count setting, which defaults to the
+     * number of available processors.
+     * @param args manifest file name and settings.
+     */
+    public static void main(String[] args){
+
+        if(args.length < 1){
+            System.out.println("NO manifest was provided to process...");
+            return;
+        }
+
+        int workers = Runtime.getRuntime().availableProcessors();
+
+        for(int i = 1; i < args.length; i++){
+
+            String[] setting = args[i].split("-");
+
+            if(setting.length == 2 && setting[0].compareTo(WORKERS) == 0){
+
+                try { // Check if number
+                    workers = Math.max(1, Integer.parseInt(setting[1]));
+                } catch(NumberFormatException e){
+                    System.out.println("\n# Invalid workers setting, using "
+                            + workers);
+                }
+            }
+        }
+
+        List<Job> jobs;
+
+        try {
+            jobs = readManifest(new File(args[0]), workers);
+        } catch(IOException e){
+            System.out.println("The manifest " + args[0]
+                    + " could not be read.");
+            return;
+        }
+
+        long start = System.nanoTime();
+
+        run(jobs, workers);
+        printSummary(jobs, System.nanoTime() - start);
+    }
+
+    /**
+     * Reads the runs of a manifest.
+     * @param manifest file listing one run on each line.
+     * @param workers number of runs at the same time, to share the
+     *                processors between.
+     * @return runs in the order of the manifest.
+     * @throws IOException if the manifest cannot be read.
+     */
+    private static List<Job> readManifest(File manifest, int workers)
+            throws IOException {
+
+        final int ARGUMENTS = 4;
+        final int ALGORITHM = 1;
+
+        List<Job> jobs = new ArrayList<Job>();
+        File folder = manifest.getAbsoluteFile().getParentFile();
+        int threads = Math.max(1,
+                Runtime.getRuntime().availableProcessors() / workers);
+        long distanceBudget = DistanceOracle.defaultMemoryBudget() / workers;
+        int lineNumber = 0;
+
+        for(String line: Files.readAllLines(manifest.toPath())){
+
+            lineNumber++;
+            line = line.trim();
+
+            if(line.isEmpty() || line.startsWith(COMMENT)){
+                continue;
+            }
+
+            String[] options = line.split("\\s+");
+
+            if(options.length < ARGUMENTS){
+                System.out.println("\n# Skipping manifest line " + lineNumber
+                        + ", it needs a file, algorithm, maximum run time"
+                        + " and optimal tour length");
+                continue;
+            }
+
+            if(!Arrays.asList(Main.getAlgorithmNames())
+                    .contains(options[ALGORITHM])){
+                System.out.println("\n# Skipping manifest line " + lineNumber
+                        + ", unknown algorithm " + options[ALGORITHM]);
+                continue;
+            }
+
+            String invalid = invalidSetting(options);
+
+            if(invalid != null){
+                System.out.println("\n# Skipping manifest line " + lineNumber
+                        + ", invalid setting " + invalid);
+                continue;
+            }
+
+            File file = new File(options[0]);
+
+            if(!file.isAbsolute()){
+                options[0] = new File(folder, options[0]).getPath();
+            }
+
+            jobs.add(new Job(jobs.size(), withThreads(options, threads),
+                    distanceBudget));
+        }
+
+        return jobs;
+    }
+
+    /**
+     * Returns the first setting of a run after the optimal tour length that
+     * Main does not accept.
+     * @param options of the run.
+     * @return invalid setting, or null if every setting is valid.
+     */
+    private static String invalidSetting(String[] options){
+
+        final int FIRST_SETTING = 4;
+
+        for(int i = FIRST_SETTING; i < options.length; i++){
+
+            if(!Main.isSettingValid(options[i])){
+                return options[i];
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Adds the number of search threads to the options of a run if they do
+     * not set it, so the runs at the same time do not each use every
+     * processor.
+     * @param options of the run.
+     * @param threads number of search threads to add.
+     * @return options with the number of search threads.
+     */
+    private static String[] withThreads(String[] options, int threads){
+
+        for(String option: options){
+
+            if(option.startsWith(THREADS + "-")){
+                return options;
+            }
+        }
+
+        String[] withThreads = new String[options.length + 1];
+        System.arraycopy(options, 0, withThreads, 0, options.length);
+        withThreads[options.length] = THREADS + "-" + threads;
+
+        return withThreads;
+    }
+
+    /**
+     * Runs every job on the worker pool, the longest time limits first, and
+     * waits for all of them to finish.
+     * @param jobs to run.
+     * @param workers number of jobs to run at the same time.
+     */
+    private static void run(List<Job> jobs, int workers){
+
+        List<Job> schedule = new ArrayList<Job>(jobs);
+        schedule.sort(Comparator.comparingLong(Job::getPriority));
+
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        List<Future<?>> running = new ArrayList<Future<?>>();
+
+        for(Job job: schedule){
+            running.add(pool.submit(job));
+        }
+
+        for(Future<?> future: running){
+
+            try {
+                future.get();
+            } catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+                break;
+            } catch(ExecutionException e){
+                // Recorded as the status of the job
+            }
+        }
+
+        pool.shutdown();
+    }
+
+    /**
+     * Prints a table of the results of every job, in the order of the
+     * manifest.
+     * @param jobs that were run.
+     * @param batchTime time the whole batch took in nanoseconds.
+     */
+    private static void printSummary(List<Job> jobs, long batchTime){
+
+        final String ROW = "%-30s %-9s %-9s %12s %8s %18s  %s";
+
+        System.out.println("\n--------------- Batch Summary ---------------\n");
+        System.out.println(String.format(ROW, "File", "Algorithm", "Limit",
+                "Distance", "Ratio", "Time", "Status"));
+
+        long total = 0;
+
+        for(Job job: jobs){
+
+            String[] options = job.getOptions();
+
+            System.out.println(String.format(ROW,
+                    new File(options[0]).getName(), options[1], options[2],
+                    job.getDistance() < 0 ? "-" : job.getDistance(),
+                    job.getRatio() == 0 ? "-"
+                            : String.format("%.4f", job.getRatio()),
+                    Timer.format(job.getElapsedTime()), job.getStatus()));
+
+            total += job.getElapsedTime();
+        }
+
+        System.out.println("\nRuns: " + jobs.size()
+                + ", Sum of Run Times: " + Timer.format(total)
+                + ", Batch Time: " + Timer.format(batchTime));
+    }
+
+    /**
+     * One run of the batch, given by one line of the manifest.
+     */
+    private static class Job implements Runnable {
+
+        private final int index;
+        private final String[] options;
+        private final long priority;
+        private final long distanceBudget;
+        private long distance;
+        private double ratio;
+        private long elapsedTime;
+        private String status;
+
+        /**
+         * Constructor. Sets the command line arguments of the run.
+         * @param index of the run in the manifest.
+         * @param options command line arguments of the run.
+         * @param distanceBudget bytes for the distances of the graph.
+         */
+        private Job(int index, String[] options, long distanceBudget){
+
+            this.index = index;
+            this.options = options;
+            this.distanceBudget = distanceBudget;
+            this.distance = -1;
+            this.ratio = 0;
+            this.elapsedTime = 0;
+            this.status = "NOT RUN";
+
+            // Runs without a limit first, then the longest limits
+            long limit = Main.maxRunTime(options);
+            this.priority = limit < 0 ? Long.MIN_VALUE : -limit;
+        }
+
+        /**
+         * Reads the graph of the run, runs the algorithm on it and writes
+         * the tour file.
+         */
+        @Override
+        public void run(){
+
+            long start = System.nanoTime();
+
+            try {
+
+                FileInputProcessor file = new FileInputProcessor(options[0]);
+
+                if(!file.isValidFile()){
+                    status = "INVALID FILE";
+                    return;
+                }
+
+                Graph graph = new Graph(distanceBudget);
+                graph.fillGraphContentsFromFile(file);
+
+                if(graph.isEmpty()){
+                    status = "NO CITIES";
+                    return;
+                }
+
+                TSP tsp = Main.createAlgorithm(graph, options);
+                Progress progress = new Progress("[" + index + "] ");
+                tsp.setProgress(progress);
+
+                try {
+                    tsp.execute();
+                } finally {
+                    progress.close();
+                }
+
+                tsp.outputPathToFile(options[0] + ".tour");
+
+                distance = tsp.getDistance();
+                long optimal = Main.optimalTourLength(options);
+
+                if(optimal > 0){
+                    ratio = tsp.getOptimalSolutionRatio(optimal);
+                }
+
+                status = tsp.timeLimitHasBeenReached() ? "TIME LIMIT" : "DONE";
+
+            } catch(Throwable e){ // Including running out of memory
+                status = "FAILED " + e;
+            } finally {
+                elapsedTime = System.nanoTime() - start;
+            }
+        }
+
+        /**
+         * Returns the command line arguments of the run.
+         * @return options of the run.
+         */
+        private String[] getOptions(){
+            return options;
+        }
+
+        /**
+         * Returns the order the run is started in, the lowest first.
+         * @return priority of the run.
+         */
+        private long getPriority(){
+            return priority;
+        }
+
+        /**
+         * Returns the distance of the tour of the run.
+         * @return tour distance, or -1 if the run did not finish.
+         */
+        private long getDistance(){
+            return distance;
+        }
+
+        /**
+         * Returns the ratio of the tour distance to the optimal tour length.
+         * @return ratio to optimal, or 0 if the optimal length is not given.
+         */
+        private double getRatio(){
+            return ratio;
+        }
+
+        /**
+         * Returns the time the run took, from reading the graph to writing
+         * the tour file.
+         * @return elapsed time in nanoseconds.
+         */
+        private long getElapsedTime(){
+            return elapsedTime;
+        }
+
+        /**
+         * Returns how the run ended.
+         * @return status of the run.
+         */
+        private String getStatus(){
+            return status;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the best tour found by any of the threads searching for a TSP
+ * solution. Tours are offered without locking, and a tour replaces the
+ * current best when it is shorter, or as short and found from an earlier
+ * start, so the result does not depend on the order the threads finish in.
+ */
+public class BestTour {
+
+    private final AtomicReference<Solution> best;
+
+    /**
+     * Constructor. Starts without a tour and an infinite distance.
+     */
+    public BestTour(){
+
+        best = new AtomicReference<Solution>(
+                new Solution(new int[0], Long.MAX_VALUE, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Offers a tour as the new best tour. The tour is copied if it is
+     * accepted, so the caller can keep reusing it.
+     * @param tour of vertex indices to offer.
+     * @param distance of the tour.
+     * @param start position of the start the tour was built from, which
+     * breaks ties between tours of the same distance.
+     * @return true if the tour is the new best tour and false otherwise.
+     */
+    public boolean offer(int[] tour, long distance, int start){
+
+        Solution current = best.get();
+
+        if(!current.isWorseThan(distance, start)){
+            return false;
+        }
+
+        Solution offered = new Solution(tour.clone(), distance, start);
+
+        // Retry until the offer is in place or another thread has stored a
+        // tour at least as good
+        while(!best.compareAndSet(current, offered)){
+
+            current = best.get();
+
+            if(!current.isWorseThan(distance, start)){
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the best tour so far with its distance and start, read
+     * together, so they always belong to the same tour.
+     * @return best solution so far.
+     */
+    public Solution getSolution(){
+        return best.get();
+    }
+
+    /**
+     * Returns the best tour found so far.
+     * @return vertex indices of the best tour.
+     */
+    public int[] getTour(){
+        return best.get().tour;
+    }
+
+    /**
+     * Returns the distance of the best tour found so far.
+     * @return best tour distance.
+     */
+    public long getDistance(){
+        return best.get().distance;
+    }
+
+    /**
+     * Returns the start the best tour so far was built from.
+     * @return start of the best tour.
+     */
+    public int getStart(){
+        return best.get().start;
+    }
+
+    /**
+     * A tour, its distance and the start it was built from, which are
+     * replaced together.
+     */
+    public static final class Solution {
+
+        private final int[] tour;
+        private final long distance;
+        private final int start;
+
+        private Solution(int[] tour, long distance, int start){
+
+            this.tour = tour;
+            this.distance = distance;
+            this.start = start;
+        }
+
+        /**
+         * Returns the tour, which must not be changed.
+         * @return vertex indices of the tour.
+         */
+        public int[] getTour(){
+            return tour;
+        }
+
+        /**
+         * Returns the distance of the tour.
+         * @return tour distance.
+         */
+        public long getDistance(){
+            return distance;
+        }
+
+        /**
+         * Returns the start the tour was built from.
+         * @return start of the tour.
+         */
+        public int getStart(){
+            return start;
+        }
+
+        /**
+         * Checks if the solution is worse than a tour with the given values.
+         * @param distance of the other tour.
+         * @param start of the other tour.
+         * @return true if the other tour should replace this solution.
+         */
+        private boolean isWorseThan(long distance, int start){
+
+            return distance < this.distance
+                    || (distance == this.distance && start < this.start);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Distance oracle backed by a fixed size, direct-mapped cache of recently
+ * requested distances. Used for graphs too large to store every distance.
+ * Each slot holds one distance and the tag of the pair of vertices it belongs
+ * to, packed into a single long so that a slot is read and written as a
+ * whole. The search threads share the cache, so the slots are read and
+ * written with opaque access, which never tears a long even where plain
+ * long writes may be split in two. A new distance evicts whatever was in its
+ * slot.
+ */
+public class CachedDistanceOracle extends DistanceOracle {
+
+    private static final int MIN_SLOT_BITS = 10;
+    private static final int MAX_SLOT_BITS = 30;
+    private static final long EMPTY = -1L;
+    private static final VarHandle SLOT =
+            MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final long[] slots;
+    private final int slotBits;
+    private final long slotMask;
+
+    /**
+     * Constructor. Sizes the cache to the largest power of two number of
+     * slots that fits in the memory budget.
+     * @param xs x-coordinates of the vertices.
+     * @param ys y-coordinates of the vertices.
+     * @param memoryBudget maximum number of bytes to use for the cache.
+     */
+    public CachedDistanceOracle(int[] xs, int[] ys, long memoryBudget){
+
+        super(xs, ys);
+
+        int bits = 63 - Long.numberOfLeadingZeros(Math.max(1, memoryBudget / 8));
+        bits = Math.min(MAX_SLOT_BITS, Math.max(bits, MIN_SLOT_BITS));
+
+        // The tag is what is left of the pair key after the slot bits and it
+        // must fit in the upper half of the slot
+        int keyBits = 64 - Long.numberOfLeadingZeros((long) size * size);
+        bits = Math.max(bits, keyBits - 31);
+
+        slotBits = bits;
+        slotMask = (1L << bits) - 1;
+        slots = new long[1 << bits];
+        Arrays.fill(slots, EMPTY);
+    }
+
+    /**
+     * Returns the distance between the two vertices, computing and caching it
+     * if it is not already cached.
+     * @param i index of the first vertex.
+     * @param j index of the second vertex.
+     * @return edge weight between the vertices.
+     */
+    @Override
+    public long distance(int i, int j){
+
+        if(i == j){
+            return 0;
+        }
+
+        // Distances are symmetric so both orders share one key
+        long key = i < j ? (long) i * size + j : (long) j * size + i;
+        int slot = (int) (key & slotMask);
+        long tag = key >>> slotBits;
+        long entry = (long) SLOT.getOpaque(slots, slot);
+
+        if(entry != EMPTY && (entry >>> 32) == tag){
+            return (int) entry;
+        }
+
+        long distance = compute(i, j);
+        SLOT.setOpaque(slots, slot, (tag << 32) | distance);
+
+        return distance;
+    }
+}
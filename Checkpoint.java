@@ -0,0 +1,202 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Saved progress of a long TSP run, so that a run that is stopped can be
+ * resumed instead of starting over. A checkpoint holds the algorithm that
+ * made it, the best tour so far with its distance and the start it was
+ * built from, and the position in the start order of the next start to
+ * search, before which every start has been searched. Checkpoints are
+ * written to a temporary file and moved in place, so a run stopped while
+ * writing one keeps the one before.
+ */
+public class Checkpoint {
+
+    private static final int MAGIC = 0x54535043; // "TSPC"
+    private static final int VERSION = 1;
+
+    private final File file;
+    private String algorithmName;
+    private int[] tour;
+    private long distance;
+    private int start;
+    private int nextStart;
+
+    /**
+     * Constructor. Sets the checkpoint file.
+     * @param fileName of the checkpoint file.
+     */
+    public Checkpoint(String fileName){
+
+        this.file = new File(fileName);
+        this.tour = new int[0];
+        this.distance = Long.MAX_VALUE;
+    }
+
+    /**
+     * Returns the name of the checkpoint file.
+     * @return checkpoint file name.
+     */
+    public String getFileName(){
+        return file.getPath();
+    }
+
+    /**
+     * Loads the checkpoint if it exists and is readable.
+     * @return true if the checkpoint was loaded and false otherwise.
+     */
+    public boolean load(){
+
+        if(!file.isFile()){
+            return false;
+        }
+
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(file.toPath())))){
+
+            if(in.readInt() != MAGIC || in.readInt() != VERSION){
+                return false;
+            }
+
+            algorithmName = in.readUTF();
+            distance = in.readLong();
+            start = in.readInt();
+            nextStart = in.readInt();
+            tour = new int[in.readInt()];
+
+            for(int i = 0; i < tour.length; i++){
+                tour[i] = in.readInt();
+            }
+
+            return true;
+
+        } catch(IOException e){
+            return false;
+        }
+    }
+
+    /**
+     * Saves the progress of a run as the checkpoint.
+     * @param algorithmName of the run.
+     * @param tour of vertex indices of the best tour so far.
+     * @param distance of the best tour.
+     * @param start the best tour was built from.
+     * @param nextStart lowest position in the start order that has not been
+     * searched.
+     * @return true if the checkpoint was saved and false otherwise.
+     */
+    public boolean save(String algorithmName, int[] tour, long distance,
+                        int start, int nextStart){
+
+        Path temporary = null;
+
+        try {
+
+            temporary = Files.createTempFile(
+                    file.getAbsoluteFile().toPath().getParent(),
+                    file.getName(), ".tmp");
+
+            try(DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporary)))){
+
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(algorithmName);
+                out.writeLong(distance);
+                out.writeInt(start);
+                out.writeInt(nextStart);
+                out.writeInt(tour.length);
+
+                for(int vertex: tour){
+                    out.writeInt(vertex);
+                }
+            }
+
+            Files.move(temporary, file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+
+            this.algorithmName = algorithmName;
+            this.tour = tour;
+            this.distance = distance;
+            this.start = start;
+            this.nextStart = nextStart;
+            return true;
+
+        } catch(IOException e){
+
+            System.out.println("Checkpoint " + file.getPath()
+                    + " could not be written.");
+
+            try {
+                if(temporary != null){
+                    Files.deleteIfExists(temporary);
+                }
+            } catch(IOException ignored){
+                // Nothing more to clean up
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Deletes the checkpoint once the run it belongs to has finished.
+     */
+    public void delete(){
+
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch(IOException e){
+            System.out.println("Checkpoint " + file.getPath()
+                    + " could not be deleted.");
+        }
+    }
+
+    /**
+     * Returns the algorithm the checkpoint was made by.
+     * @return algorithm name.
+     */
+    public String getAlgorithmName(){
+        return algorithmName;
+    }
+
+    /**
+     * Returns the best tour in the checkpoint.
+     * @return vertex indices of the best tour.
+     */
+    public int[] getTour(){
+        return tour;
+    }
+
+    /**
+     * Returns the distance of the best tour in the checkpoint.
+     * @return best tour distance.
+     */
+    public long getDistance(){
+        return distance;
+    }
+
+    /**
+     * Returns the start the best tour in the checkpoint was built from.
+     * @return start of the best tour.
+     */
+    public int getStart(){
+        return start;
+    }
+
+    /**
+     * Returns the lowest position in the start order that had not been
+     * searched. It is a position, not a vertex index.
+     * @return position in the start order of the next start to search.
+     */
+    public int getNextStart(){
+        return nextStart;
+    }
+}
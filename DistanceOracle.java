@@ -0,0 +1,127 @@
+/**
+ * Answers distance queries between the vertices of a graph by their index in
+ * the graph. The base oracle computes each distance on demand from the vertex
+ * coordinates, while its subclasses store the distances ahead of time or as
+ * they are requested. The storage is chosen by the size of the graph and the
+ * amount of memory the oracle is allowed to use.
+ */
+public class DistanceOracle {
+
+    // Largest graph that uses a full distance matrix
+    private static final int MATRIX_MAX_SIZE = 4096;
+
+    // Largest number of distances that fit in a single array
+    private static final long MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    protected final int[] xs;
+    protected final int[] ys;
+    protected final int size;
+
+    /**
+     * Constructor. Sets the coordinates of the vertices, where the index of
+     * each coordinate is the index of the vertex in the graph.
+     * @param xs x-coordinates of the vertices.
+     * @param ys y-coordinates of the vertices.
+     */
+    public DistanceOracle(int[] xs, int[] ys){
+
+        this.xs = xs;
+        this.ys = ys;
+        this.size = xs.length;
+    }
+
+    /**
+     * Creates the oracle that best fits the number of vertices within the
+     * memory budget. Small graphs get a full matrix, medium graphs the upper
+     * triangle of the matrix and large graphs a bounded cache.
+     * @param xs x-coordinates of the vertices.
+     * @param ys y-coordinates of the vertices.
+     * @param memoryBudget maximum number of bytes to use for the distances.
+     * @return distance oracle for the vertices.
+     */
+    public static DistanceOracle create(int[] xs, int[] ys, long memoryBudget){
+
+        long n = xs.length;
+        long matrixBytes = n * (4 * n + 16);
+        long triangleEntries = n * (n - 1) / 2;
+
+        // Stored distances must fit in an integer
+        if(!fitsInInteger(xs, ys)){
+            return new DistanceOracle(xs, ys);
+        }
+
+        if(n <= MATRIX_MAX_SIZE && matrixBytes <= memoryBudget){
+            return new MatrixDistanceOracle(xs, ys);
+        } else if(triangleEntries <= MAX_ARRAY_LENGTH
+                && triangleEntries * 4 <= memoryBudget){
+            return new TriangleDistanceOracle(xs, ys);
+        } else {
+            return new CachedDistanceOracle(xs, ys, memoryBudget);
+        }
+    }
+
+    /**
+     * Returns the default memory budget for the distances, which is a quarter
+     * of the maximum heap unless the tsp.distance.budget system property
+     * gives the number of bytes.
+     * @return default memory budget in bytes.
+     */
+    public static long defaultMemoryBudget(){
+
+        return Long.getLong("tsp.distance.budget",
+                Runtime.getRuntime().maxMemory() / 4);
+    }
+
+    /**
+     * Returns the number of vertices the oracle answers for.
+     * @return number of vertices.
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Returns the distance between the two vertices.
+     * @param i index of the first vertex.
+     * @param j index of the second vertex.
+     * @return edge weight between the vertices.
+     */
+    public long distance(int i, int j){
+
+        return compute(i, j);
+    }
+
+    /**
+     * Computes the distance between the two vertices from their coordinates.
+     * The rounding is the same as {@link Point#distance(Point)}.
+     * @param i index of the first vertex.
+     * @param j index of the second vertex.
+     * @return edge weight between the vertices.
+     */
+    protected final long compute(int i, int j){
+
+        return Point.distance(xs[i], ys[i], xs[j], ys[j]);
+    }
+
+    /**
+     * Checks if the longest possible distance between the vertices fits in an
+     * integer, which is the bounding box diagonal.
+     * @param xs x-coordinates of the vertices.
+     * @param ys y-coordinates of the vertices.
+     * @return true if every distance fits in an integer and false otherwise.
+     */
+    private static boolean fitsInInteger(int[] xs, int[] ys){
+
+        long minX = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE;
+        long minY = Integer.MAX_VALUE, maxY = Integer.MIN_VALUE;
+
+        for(int i = 0; i < xs.length; i++){
+            minX = Math.min(minX, xs[i]);
+            maxX = Math.max(maxX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+
+        return Math.hypot(maxX - minX, maxY - minY) < Integer.MAX_VALUE;
+    }
+}
@@ -1,22 +1,37 @@
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.Scanner;
+import java.util.Arrays;
+import java.util.stream.IntStream;
 
 /**
  * Reads in values from a TSP location file, with a specific format, and builds
- * an array list of values to import into the graph. File must be in the
+ * arrays of the values to import into the graph. File must be in the
  * following format:
  * Each line has 3 integers; city identifier, x-coord, y-coord.
  * A complete example is 0 200 800
+ * The file is memory mapped and the integers are parsed straight from its
+ * bytes. Large files are split into chunks at line breaks, which are parsed
+ * in parallel and joined in file order.
  * @author Seth Dovgan
  * @version 18FEB18
  */
 public class FileInputProcessor {
 
-    private Scanner scanner;
+    // Smallest file split into chunks, and the largest chunk mapped at once
+    private static final long MIN_CHUNK_SIZE = 1 << 20;
+    private static final long MAX_CHUNK_SIZE = 1 << 28;
+
+    private FileChannel channel;
     private String fileName;
     private File file;
+    private int[] identifiers;
+    private int[] xs;
+    private int[] ys;
 
     /**
      * Constructor. Sets the file name to read in and creates a new file
@@ -47,14 +62,13 @@ public class FileInputProcessor {
      */
     public boolean setup(){
 
-        try { // Create the file reader
+        try { // Open the file for mapping
 
-            // Input File scanner
-            scanner = new Scanner(file);
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
             return true;
 
-        // If the file is not found, print the error
-        } catch(FileNotFoundException e){
+        // If the file cannot be opened, print the error
+        } catch(IOException e){
 
             System.out.println("File " + fileName + " could not be found.");
             return false;
@@ -66,44 +80,314 @@ public class FileInputProcessor {
      * file processing is completed.
      */
     public void teardown(){
-        scanner.close();
+
+        try {
+            channel.close();
+        } catch(IOException e){
+            System.out.println("File " + fileName + " could not be closed.");
+        }
     }
 
     /**
-     * Processes the file and returns the all the vertices from the file in
-     * an ArrayList or vertices.
-     * @return as vertices derived from the file.
+     * Processes the file, keeping the identifier and coordinates of every
+     * city in the order of the file. Lines without exactly three integers
+     * are reported as errors and disregarded.
+     * @return number of cities read from the file.
      */
-    public ArrayList<Vertex> getVerticesFromFile(){
+    public int readCities(){
 
-        ArrayList<Vertex> vertices = new ArrayList<Vertex>();
+        try {
 
-        // Check if file still has data to process and process next line
-        while(scanner.hasNextLine()){
+            long[] bounds = chunkBounds();
 
-            String[] data = scanner.nextLine().trim().split("\\s+");
+            Chunk[] chunks = new Chunk[bounds.length - 1];
 
-            // Check if all the elements exist in the line
-            if(data.length == 3){
+            IntStream.range(0, chunks.length).parallel().forEach(i -> {
+                chunks[i] = parseChunk(bounds[i], bounds[i + 1]);
+            });
 
-                int identifier = Integer.parseInt(data[0]);
-                int x = Integer.parseInt(data[1]);
-                int y = Integer.parseInt(data[2]);
+            // Join the chunks in file order
+            int cities = 0;
 
-                vertices.add(new Vertex(identifier, new Point(x, y)));
+            for(Chunk chunk: chunks){
+                cities += chunk.size;
+            }
+
+            identifiers = new int[cities];
+            xs = new int[cities];
+            ys = new int[cities];
+            cities = 0;
 
-            } else { // Print an error message and disregard line
+            for(Chunk chunk: chunks){
 
-                System.err.print("ERROR IN FILE < Missing Elements in Line > ");
+                System.arraycopy(chunk.identifiers, 0, identifiers, cities, chunk.size);
+                System.arraycopy(chunk.xs, 0, xs, cities, chunk.size);
+                System.arraycopy(chunk.ys, 0, ys, cities, chunk.size);
+                cities += chunk.size;
 
-                for(String string: data){
-                    System.err.print(string + " ");
+                for(String error: chunk.errors){
+                    System.err.println(error);
                 }
-                System.err.print("\n");
             }
+
+            return cities;
+
+        } catch(IOException e){
+
+            System.out.println("File " + fileName + " could not be read.");
+
+            identifiers = new int[0];
+            xs = new int[0];
+            ys = new int[0];
+            return 0;
         }
+    }
+
+    /**
+     * Returns the identifiers of the cities read from the file.
+     * @return city identifiers in file order.
+     */
+    public int[] getIdentifiers(){
+        return identifiers;
+    }
 
-        return vertices;
+    /**
+     * Returns the x-coordinates of the cities read from the file.
+     * @return city x-coordinates in file order.
+     */
+    public int[] getXs(){
+        return xs;
     }
-}
 
+    /**
+     * Returns the y-coordinates of the cities read from the file.
+     * @return city y-coordinates in file order.
+     */
+    public int[] getYs(){
+        return ys;
+    }
+
+    /**
+     * Splits the file into chunks of whole lines, a few for each processor
+     * for a large file and one for a small file.
+     * @return positions where each chunk starts, followed by the file size.
+     * @throws IOException if the file cannot be read.
+     */
+    private long[] chunkBounds() throws IOException {
+
+        long size = channel.size();
+        long count = Math.min(size / MIN_CHUNK_SIZE,
+                4L * Runtime.getRuntime().availableProcessors());
+
+        count = Math.max(count, (size + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+        count = Math.max(count, 1);
+
+        long[] bounds = new long[(int) count + 1];
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+
+        bounds[bounds.length - 1] = size;
+
+        // Move each split forward to just after the next line break
+        for(int i = 1; i < count; i++){
+
+            long position = Math.max(bounds[i - 1], size / count * i);
+
+            search:
+            while(position < size){
+
+                buffer.clear();
+                int read = channel.read(buffer, position);
+
+                for(int j = 0; j < read; j++){
+                    if(buffer.get(j) == '\n'){
+                        position += j + 1;
+                        break search;
+                    }
+                }
+                position += Math.max(read, 0);
+            }
+
+            bounds[i] = Math.min(position, size);
+        }
+
+        return bounds;
+    }
+
+    /**
+     * Parses the cities in one chunk of whole lines of the file.
+     * @param start position of the chunk in the file.
+     * @param end position after the chunk in the file.
+     * @return cities and errors found in the chunk.
+     */
+    private Chunk parseChunk(long start, long end){
+
+        Chunk chunk = new Chunk((int) ((end - start) / 16) + 16);
+
+        if(end <= start){
+            return chunk;
+        }
+
+        MappedByteBuffer bytes;
+
+        try {
+            bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch(IOException e){
+            chunk.errors.add("ERROR IN FILE < Unreadable Bytes " + start
+                    + " to " + end + " >");
+            return chunk;
+        }
+
+        int length = (int) (end - start);
+        int position = 0;
+        long[] values = new long[3];
+
+        while(position < length){
+
+            int lineStart = position;
+            int tokens = 0;
+            boolean valid = true;
+
+            // Read the integers on the line up to the line break
+            while(position < length && bytes.get(position) != '\n'){
+
+                byte b = bytes.get(position);
+
+                // Whitespace between the integers, read as unsigned so bytes
+                // from 0x80 up make the line invalid
+                if((b & 0xFF) <= ' '){
+                    position++;
+                    continue;
+                }
+
+                long value = 0;
+                boolean negative = b == '-';
+                int digits = 0;
+
+                if(b == '-' || b == '+'){
+                    position++;
+                }
+
+                while(position < length
+                        && ((b = bytes.get(position)) & 0xFF) > ' '){
+
+                    if(b < '0' || b > '9' || value > Integer.MAX_VALUE + 1L){
+                        valid = false;
+                    } else {
+                        value = value * 10 + (b - '0');
+                    }
+                    digits++;
+                    position++;
+                }
+
+                value = negative ? -value : value;
+
+                if(digits == 0 || value < Integer.MIN_VALUE
+                        || value > Integer.MAX_VALUE){
+                    valid = false;
+                }
+
+                if(tokens < values.length){
+                    values[tokens] = value;
+                }
+                tokens++;
+            }
+
+            int lineEnd = position;
+            position++; // Past the line break
+
+            // Check if all the elements exist in the line
+            if(tokens == 3 && valid){
+
+                chunk.add((int) values[0], (int) values[1], (int) values[2]);
+
+            } else { // Keep an error message and disregard line
+
+                chunk.errors.add((tokens == 3
+                        ? "ERROR IN FILE < Invalid Number in Line > "
+                        : "ERROR IN FILE < Missing Elements in Line > ")
+                        + line(bytes, lineStart, lineEnd));
+            }
+        }
+
+        return chunk;
+    }
+
+    /**
+     * Returns the elements of a line separated by single spaces, as they are
+     * printed when the line has an error.
+     * @param bytes of the chunk holding the line.
+     * @param start position of the line in the chunk.
+     * @param end position of the line break in the chunk.
+     * @return elements of the line.
+     */
+    private String line(MappedByteBuffer bytes, int start, int end){
+
+        StringBuilder line = new StringBuilder();
+        boolean inElement = false;
+
+        for(int i = start; i < end; i++){
+
+            byte b = bytes.get(i);
+
+            if((b & 0xFF) > ' '){
+                line.append((char) (b & 0xFF));
+                inElement = true;
+            } else if(inElement){
+                line.append(' ');
+                inElement = false;
+            }
+        }
+
+        if(inElement){
+            line.append(' ');
+        }
+
+        return line.toString();
+    }
+
+    /**
+     * Cities and error messages parsed from one chunk of the file.
+     */
+    private static class Chunk {
+
+        private int[] identifiers;
+        private int[] xs;
+        private int[] ys;
+        private int size;
+        private final ArrayList<String> errors;
+
+        /**
+         * Constructor. Creates an empty chunk with room for the given number
+         * of cities before it grows.
+         * @param capacity number of cities to make room for.
+         */
+        private Chunk(int capacity){
+
+            identifiers = new int[capacity];
+            xs = new int[capacity];
+            ys = new int[capacity];
+            size = 0;
+            errors = new ArrayList<String>();
+        }
+
+        /**
+         * Adds a city to the end of the chunk.
+         * @param identifier of the city.
+         * @param x coordinate of the city.
+         * @param y coordinate of the city.
+         */
+        private void add(int identifier, int x, int y){
+
+            if(size == identifiers.length){
+                identifiers = Arrays.copyOf(identifiers, size * 2);
+                xs = Arrays.copyOf(xs, size * 2);
+                ys = Arrays.copyOf(ys, size * 2);
+            }
+
+            identifiers[size] = identifier;
+            xs[size] = x;
+            ys[size] = y;
+            size++;
+        }
+    }
+}
@@ -1,20 +1,44 @@
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
- * Generates an adjacency matrix of a complete weighted graph.
+ * Generates an adjacency matrix of a complete weighted graph. The vertices are
+ * stored as parallel arrays of identifiers and coordinates, indexed by the
+ * position of the vertex in the graph, which the TSP algorithms work on
+ * directly. Vertex objects are only created as a view of a vertex when they
+ * are asked for. Each view is published with a compare and set, so threads
+ * asking for the same vertex at the same time all get the same view.
  */
 public class Graph {
 
-    private ArrayList<Vertex> adjacencyList;
-    private Vertex source;
+    private int[] identifiers;
+    private int[] xs;
+    private int[] ys;
+    private AtomicReferenceArray<Vertex> views;
+    private int source;
+    private DistanceOracle distances;
+    private KDTree spatialIndex;
+    private NeighborLists neighborLists;
+    private long distanceMemoryBudget;
 
     /**
-     * Constructor. Creates an empty graph.
+     * Constructor. Creates an empty graph with the default memory budget for
+     * its distances.
      */
     public Graph() {
 
-        adjacencyList = new ArrayList<Vertex>();
-        source = null;
+        this(DistanceOracle.defaultMemoryBudget());
+    }
+
+    /**
+     * Constructor. Creates an empty graph whose distances use at most the
+     * given number of bytes.
+     * @param distanceMemoryBudget maximum number of bytes for the distances.
+     */
+    public Graph(long distanceMemoryBudget) {
+
+        this.distanceMemoryBudget = distanceMemoryBudget;
+        fillCoordinates(new int[0], new int[0], new int[0]);
     }
 
     /**
@@ -22,7 +46,7 @@ public class Graph {
      * @return size of the graph.
      */
     public int size() {
-        return adjacencyList.size();
+        return identifiers.length;
     }
 
     /**
@@ -31,18 +55,140 @@ public class Graph {
      */
     public boolean isEmpty() {
 
-        return adjacencyList.isEmpty();
+        return identifiers.length == 0;
     }
 
     /**
-     * Returns the graph adjacency list.
+     * Returns the graph adjacency list, creating a view for each vertex that
+     * does not have one yet.
      * @return adjacency list of vertices.
      */
     public ArrayList<Vertex> getAdjacencyList(){
 
+        ArrayList<Vertex> adjacencyList = new ArrayList<Vertex>(size());
+
+        for(int i = 0; i < size(); i++){
+            adjacencyList.add(getVertex(i));
+        }
+
         return adjacencyList;
     }
 
+    /**
+     * Returns the view of the vertex at the given index, creating it the first
+     * time it is asked for.
+     * @param index of the vertex in the graph.
+     * @return vertex at the index.
+     */
+    public Vertex getVertex(int index){
+
+        Vertex view = views.get(index);
+
+        if(view == null){
+
+            view = new Vertex(identifiers[index],
+                    new Point(xs[index], ys[index]));
+            view.setIndex(index);
+
+            // Keep the view of another thread if it got there first
+            if(!views.compareAndSet(index, null, view)){
+                view = views.get(index);
+            }
+        }
+
+        return view;
+    }
+
+    /**
+     * Returns the views of the vertices in the order given by their indices.
+     * @param indices of the vertices in the graph.
+     * @return vertices at the indices.
+     */
+    public ArrayList<Vertex> getVertices(int[] indices){
+
+        ArrayList<Vertex> vertices = new ArrayList<Vertex>(indices.length);
+
+        for(int index: indices){
+            vertices.add(getVertex(index));
+        }
+
+        return vertices;
+    }
+
+    /**
+     * Returns the identifier of the vertex at the given index.
+     * @param index of the vertex in the graph.
+     * @return vertex identifier.
+     */
+    public int getIdentifier(int index){
+        return identifiers[index];
+    }
+
+    /**
+     * Returns the x-coordinate of the vertex at the given index.
+     * @param index of the vertex in the graph.
+     * @return vertex x-coordinate.
+     */
+    public int getX(int index){
+        return xs[index];
+    }
+
+    /**
+     * Returns the y-coordinate of the vertex at the given index.
+     * @param index of the vertex in the graph.
+     * @return vertex y-coordinate.
+     */
+    public int getY(int index){
+        return ys[index];
+    }
+
+    /**
+     * Returns the distance oracle for the vertices in the graph.
+     * @return distance oracle.
+     */
+    public DistanceOracle getDistanceOracle(){
+
+        return distances;
+    }
+
+    /**
+     * Returns the spatial index over the vertices in the graph, used to find
+     * the nearest vertex that has not been visited.
+     * @return spatial index.
+     */
+    public KDTree getSpatialIndex(){
+
+        return spatialIndex;
+    }
+
+    /**
+     * Returns the lists of the nearest vertices to each vertex in the graph.
+     * The lists are found the first time they are asked for and kept until a
+     * different list size is asked for.
+     * @param size number of neighbors for each vertex.
+     * @return neighbor lists.
+     */
+    public synchronized NeighborLists getNeighborLists(int size){
+
+        if(neighborLists == null
+                || neighborLists.size() != Math.min(size, size() - 1)){
+            neighborLists = new NeighborLists(spatialIndex, size(), size);
+        }
+
+        return neighborLists;
+    }
+
+    /**
+     * Returns the edge weight between two vertices in the graph.
+     * @param u first vertex.
+     * @param v second vertex.
+     * @return edge weight.
+     */
+    public long distance(Vertex u, Vertex v){
+
+        return distances.distance(u.getIndex(), v.getIndex());
+    }
+
     /**
      * Returns the edge with the minimum distance from the source vertex to
      * any of destinations that have not already be visited.
@@ -54,14 +200,21 @@ public class Graph {
         Vertex destination = null;
 
         long minDistance = Integer.MAX_VALUE;
+        long distance;
+
+        // Loop through the vertices to get the minimum edge distance
+        for(int i = 0; i < size(); i++){
+
+            distance = distances.distance(source.getIndex(), i);
+
+            if(distance < minDistance){
 
-        // Loop through adjacency list get the minimum edge distance
-        for(Vertex v: adjacencyList){
+                Vertex v = getVertex(i);
 
-            if(source.getPoint().distance(v.getPoint()) < minDistance
-                    && v.getColor() != Color.BLACK){
-                minDistance = source.getPoint().distance(v.getPoint());
-                destination = v;
+                if(v.getColor() != Color.BLACK){
+                    minDistance = distance;
+                    destination = v;
+                }
             }
         }
 
@@ -73,6 +226,14 @@ public class Graph {
      * @return current source.
      */
     public Vertex getSource(){
+        return getVertex(source);
+    }
+
+    /**
+     * Returns the index of the currently set source for the graph.
+     * @return current source index.
+     */
+    public int getSourceIndex(){
         return source;
     }
 
@@ -82,7 +243,7 @@ public class Graph {
      */
     public void setSource(int identifier){
 
-        source = adjacencyList.get(identifier);
+        source = identifier;
     }
 
     /**
@@ -91,8 +252,8 @@ public class Graph {
      */
     public void resetAllDiscoveryValues(int keyValue){
 
-        for(Vertex u: adjacencyList) {
-            u.clearDiscoveryValues(keyValue);
+        for(int i = 0; i < size(); i++) {
+            getVertex(i).clearDiscoveryValues(keyValue);
         }
     }
 
@@ -105,23 +266,69 @@ public class Graph {
         System.out.println("Filling Graph Content from " + file.getFileName()
                 + "...");
 
-        file.setup();
+        GraphSnapshot snapshot = new GraphSnapshot(file.getFileName());
+
+        if(GraphSnapshot.isEnabled() && snapshot.load()){ // Skip the text file
+
+            fillCoordinates(snapshot.getIdentifiers(), snapshot.getXs(),
+                    snapshot.getYs());
+            neighborLists = snapshot.getNeighborLists();
 
-        ArrayList<Vertex> vertices = file.getVerticesFromFile();
-        fillVertices(vertices);
+            System.out.println("Reading In snapshot "
+                    + snapshot.getFileName() + " Complete");
 
-        System.out.println("Reading In file Complete");
-        setSource(vertices.get(0).getIdentifier());
+        } else {
 
-        file.teardown();
+            file.setup();
+
+            file.readCities();
+            fillCoordinates(file.getIdentifiers(), file.getXs(), file.getYs());
+
+            System.out.println("Reading In file Complete");
+
+            file.teardown();
+
+            if(GraphSnapshot.isEnabled()){ // Save it for the next run
+                writeSnapshot(snapshot);
+            }
+        }
+
+        if(!isEmpty()){
+            setSource(identifiers[0]);
+        }
+    }
+
+    /**
+     * Writes a snapshot of the graph, with the neighbor lists of the size
+     * given for snapshots.
+     * @param snapshot to write.
+     */
+    private void writeSnapshot(GraphSnapshot snapshot){
+
+        int neighbors = GraphSnapshot.defaultNeighborListSize();
+
+        if(snapshot.write(identifiers, xs, ys,
+                neighbors > 0 && !isEmpty() ? getNeighborLists(neighbors) : null)){
+            System.out.println("Wrote snapshot " + snapshot.getFileName());
+        }
     }
 
     /**
-     * Fills the vertices in the graph from an ArrayList of vertices.
-     * @param vertices to add to the graph.
+     * Fills the graph with the vertex identifiers and coordinates, where the
+     * position in the arrays is the index of the vertex in the graph.
+     * @param identifiers of the vertices.
+     * @param xs x-coordinates of the vertices.
+     * @param ys y-coordinates of the vertices.
      */
-    private void fillVertices(ArrayList<Vertex> vertices){
+    private void fillCoordinates(int[] identifiers, int[] xs, int[] ys){
 
-        adjacencyList = vertices;
+        this.identifiers = identifiers;
+        this.xs = xs;
+        this.ys = ys;
+        this.views = new AtomicReferenceArray<Vertex>(identifiers.length);
+        this.source = 0;
+        this.distances = DistanceOracle.create(xs, ys, distanceMemoryBudget);
+        this.spatialIndex = new KDTree(xs, ys);
+        this.neighborLists = null;
     }
 }
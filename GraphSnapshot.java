@@ -0,0 +1,264 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary snapshot of a graph read from a TSP location file, kept next to the
+ * file with the .graph extension added to its name. Loading a snapshot maps
+ * it into memory and skips parsing the text file, and the neighbor lists
+ * stored with it skip finding them again. A snapshot records the size and
+ * checksum of the file it was made from, and is ignored once the file has
+ * changed. The snapshot is laid out in little-endian order as:
+ * int magic number, int version, long file size, long file checksum,
+ * int number of cities, int neighbor list size, then the identifiers,
+ * x-coordinates, y-coordinates and neighbor lists as ints.
+ */
+public class GraphSnapshot {
+
+    private static final int MAGIC = 0x47505354; // "TSPG"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+
+    private final File source;
+    private final File file;
+    private int[] identifiers;
+    private int[] xs;
+    private int[] ys;
+    private NeighborLists neighborLists;
+
+    /**
+     * Constructor. Sets the location file the snapshot belongs to.
+     * @param sourceFileName of the location file.
+     */
+    public GraphSnapshot(String sourceFileName){
+
+        this.source = new File(sourceFileName);
+        this.file = new File(sourceFileName + ".graph");
+    }
+
+    /**
+     * Returns whether snapshots are used, which is when the tsp.snapshot
+     * system property is set to true.
+     * @return true if snapshots are used and false otherwise.
+     */
+    public static boolean isEnabled(){
+
+        return Boolean.getBoolean("tsp.snapshot");
+    }
+
+    /**
+     * Returns the number of nearest neighbors stored for each city in a new
+     * snapshot, which is 10 unless the tsp.snapshot.neighbors system
+     * property gives the number. Zero stores no neighbor lists.
+     * @return neighbor list size to store.
+     */
+    public static int defaultNeighborListSize(){
+
+        return Math.max(0, Integer.getInteger("tsp.snapshot.neighbors", 10));
+    }
+
+    /**
+     * Returns the name of the snapshot file.
+     * @return snapshot file name.
+     */
+    public String getFileName(){
+        return file.getPath();
+    }
+
+    /**
+     * Loads the snapshot if it exists and was made from the location file as
+     * it is now.
+     * @return true if the snapshot was loaded and false otherwise.
+     */
+    public boolean load(){
+
+        if(!file.isFile() || !source.isFile()){
+            return false;
+        }
+
+        try(FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.READ)){
+
+            if(channel.size() < HEADER_SIZE){
+                return false;
+            }
+
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY,
+                    0, channel.size());
+            bytes.order(ByteOrder.LITTLE_ENDIAN);
+
+            if(bytes.getInt(0) != MAGIC || bytes.getInt(4) != VERSION
+                    || bytes.getLong(8) != source.length()
+                    || bytes.getLong(16) != checksum()){
+                return false;
+            }
+
+            int cities = bytes.getInt(24);
+            int neighbors = bytes.getInt(28);
+
+            if(cities < 0 || neighbors < 0 || channel.size() != HEADER_SIZE
+                    + 4L * cities * (3 + (long) neighbors)){
+                return false;
+            }
+
+            bytes.position(HEADER_SIZE);
+            IntBuffer ints = bytes.asIntBuffer();
+
+            identifiers = new int[cities];
+            xs = new int[cities];
+            ys = new int[cities];
+
+            ints.get(identifiers);
+            ints.get(xs);
+            ints.get(ys);
+
+            neighborLists = neighbors > 0
+                    ? new NeighborLists(ints, cities, neighbors) : null;
+
+            return true;
+
+        } catch(IOException e){
+            return false;
+        }
+    }
+
+    /**
+     * Writes the snapshot for the location file. The snapshot is written to
+     * a temporary file first and then moved in place, so a run loading it at
+     * the same time never sees it half written.
+     * @param identifiers of the cities.
+     * @param xs x-coordinates of the cities.
+     * @param ys y-coordinates of the cities.
+     * @param neighborLists to store, or null to store none.
+     * @return true if the snapshot was written and false otherwise.
+     */
+    public boolean write(int[] identifiers, int[] xs, int[] ys,
+                         NeighborLists neighborLists){
+
+        int cities = identifiers.length;
+        int neighbors = neighborLists == null ? 0 : neighborLists.size();
+        long size = HEADER_SIZE + 4L * cities * (3 + (long) neighbors);
+        Path temporary = null;
+
+        try {
+
+            temporary = Files.createTempFile(
+                    file.getAbsoluteFile().toPath().getParent(),
+                    file.getName(), ".tmp");
+
+            try(FileChannel channel = FileChannel.open(temporary,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)){
+
+                MappedByteBuffer bytes = channel.map(
+                        FileChannel.MapMode.READ_WRITE, 0, size);
+                bytes.order(ByteOrder.LITTLE_ENDIAN);
+
+                bytes.putInt(MAGIC);
+                bytes.putInt(VERSION);
+                bytes.putLong(source.length());
+                bytes.putLong(checksum());
+                bytes.putInt(cities);
+                bytes.putInt(neighbors);
+
+                IntBuffer ints = bytes.asIntBuffer();
+
+                ints.put(identifiers);
+                ints.put(xs);
+                ints.put(ys);
+
+                if(neighborLists != null){
+                    neighborLists.writeTo(ints);
+                }
+
+                bytes.force();
+            }
+
+            Files.move(temporary, file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            return true;
+
+        } catch(IOException e){
+
+            System.out.println("Snapshot " + file.getPath()
+                    + " could not be written.");
+
+            try {
+                if(temporary != null){
+                    Files.deleteIfExists(temporary);
+                }
+            } catch(IOException ignored){
+                // Nothing more to clean up
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Returns the identifiers of the cities in the loaded snapshot.
+     * @return city identifiers in file order.
+     */
+    public int[] getIdentifiers(){
+        return identifiers;
+    }
+
+    /**
+     * Returns the x-coordinates of the cities in the loaded snapshot.
+     * @return city x-coordinates in file order.
+     */
+    public int[] getXs(){
+        return xs;
+    }
+
+    /**
+     * Returns the y-coordinates of the cities in the loaded snapshot.
+     * @return city y-coordinates in file order.
+     */
+    public int[] getYs(){
+        return ys;
+    }
+
+    /**
+     * Returns the neighbor lists in the loaded snapshot.
+     * @return neighbor lists, or null if the snapshot has none.
+     */
+    public NeighborLists getNeighborLists(){
+        return neighborLists;
+    }
+
+    /**
+     * Calculates the checksum of the location file as it is now, reading it
+     * through a memory map.
+     * @return CRC-32C checksum of the location file.
+     * @throws IOException if the location file cannot be read.
+     */
+    private long checksum() throws IOException {
+
+        CRC32C crc = new CRC32C();
+
+        try(FileChannel channel = FileChannel.open(source.toPath(),
+                StandardOpenOption.READ)){
+
+            long size = channel.size();
+            long chunk = 1L << 28;
+
+            for(long position = 0; position < size; position += chunk){
+
+                ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY,
+                        position, Math.min(chunk, size - position));
+                crc.update(bytes);
+            }
+        }
+
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,356 @@
+/**
+ * Greedy edge (multi-fragment) construction for the TSP. The candidate edges
+ * between each vertex and its nearest neighbors are taken from shortest to
+ * longest off a heap, and an edge is added to the tour whenever both of its
+ * vertices have fewer than two edges and it does not close a cycle, which is
+ * checked with a union-find over the fragments built so far. The fragments
+ * left when the candidates run out are joined end to end, each to the
+ * nearest free end of another fragment, to close the tour.
+ *
+ * The tours are usually shorter than nearest neighbor tours and leave less
+ * work to the tour improvement. With K neighbors for each of n vertices the
+ * construction takes O(nK log nK) time.
+ */
+public class GreedyEdge extends TSP {
+
+    // Candidate edges taken off the heap between checks of the time limit
+    private static final int CHECK_MASK = 1023;
+
+    private int neighborListSize;
+
+    private DistanceOracle distances;
+    private long[] weights;
+    private int[] heap;
+    private int heapSize;
+    private int[] parent;
+    private int[] links;
+
+    /**
+     * Default Constructor. Sets the graph to run the TSP algorithm on.
+     * @param graph used in the TSP algorithm.
+     */
+    public GreedyEdge(Graph graph){
+
+        super(graph);
+        this.algorithmName = "GREEDY";
+        this.neighborListSize = 10;
+    }
+
+    /**
+     * Sets the number of nearest neighbors of each vertex whose edges are
+     * candidates for the tour.
+     * @param neighborListSize number of nearest neighbors, at least one.
+     */
+    public void setNeighborListSize(int neighborListSize){
+
+        this.neighborListSize = Math.max(1, neighborListSize);
+    }
+
+    /**
+     * Builds the greedy edge tour. If the time limit is reached first, the
+     * fragments built so far are joined into the tour.
+     */
+    @Override
+    public void execute(){
+
+        startRun();
+
+        int n = graph.size();
+        RunEvents.Construction event = new RunEvents.Construction();
+        event.begin();
+
+        distances = graph.getDistanceOracle();
+        links = new int[2 * n];
+        parent = new int[n];
+
+        for(int v = 0; v < n; v++){
+            links[2 * v] = -1;
+            links[2 * v + 1] = -1;
+            parent[v] = v;
+        }
+
+        if(n > 1){
+            addCandidateEdges(graph.getNeighborLists(neighborListSize));
+            joinFragments();
+        }
+
+        int[] order = tourOrder();
+        tour = new ArrayTour(order);
+        distance = calculateTotalDistance(order);
+
+        // Release the working arrays
+        weights = null;
+        heap = null;
+        parent = null;
+        links = null;
+
+        if(trace != null){
+            trace.record(Trace.CONSTRUCTION, graph.getIdentifier(order[0]),
+                    distance, 0, 0);
+        }
+
+        if(event.shouldCommit()){
+            event.start = graph.getIdentifier(order[0]);
+            event.length = distance;
+            event.commit();
+        }
+
+        if(incumbent != null){
+            incumbent.offer(order, distance, order[0]);
+        }
+
+        printSolution(graph.getIdentifier(order[0]), algorithmName);
+
+        stopRun();
+    }
+
+    /**
+     * Prints the algorithm details to the console.
+     */
+    @Override
+    public void printAlgorithmDetails(){
+
+        super.printAlgorithmDetails();
+        System.out.println("Neighbor list size: " + neighborListSize);
+    }
+
+    /**
+     * Adds the candidate edges to the tour from shortest to longest, skipping
+     * those that would give a vertex a third edge or close a cycle.
+     * @param neighbors lists of the nearest neighbors of each vertex.
+     */
+    private void addCandidateEdges(NeighborLists neighbors){
+
+        int size = neighbors.size();
+        int edges = graph.size() * size;
+
+        // Edge e joins vertex e / size to its neighbor of rank e % size
+        weights = new long[edges];
+        heap = new int[edges];
+        heapSize = edges;
+
+        for(int e = 0; e < edges; e++){
+            weights[e] = distances.distance(e / size,
+                    neighbors.get(e / size, e % size));
+            heap[e] = e;
+        }
+
+        for(int i = heapSize / 2 - 1; i >= 0; i--){
+            siftDown(i);
+        }
+
+        int joined = 0;
+        int steps = 0;
+
+        // A tour of n vertices has n - 1 edges before it is closed
+        while(heapSize > 0 && joined < graph.size() - 1){
+
+            int e = heap[0];
+            heap[0] = heap[--heapSize];
+            siftDown(0);
+
+            int u = e / size;
+            int v = neighbors.get(u, e % size);
+
+            if(degree(u) < 2 && degree(v) < 2){
+
+                int ru = find(u);
+                int rv = find(v);
+
+                if(ru != rv){
+                    link(u, v);
+                    parent[ru] = rv;
+                    joined++;
+                }
+            }
+
+            if((++steps & CHECK_MASK) == 0 && timeLimitHasBeenReached()){
+                return;
+            }
+        }
+    }
+
+    /**
+     * Joins the fragments into a single tour. Starting from one end of a
+     * fragment, the path walks to its other end and on to the nearest end of
+     * a fragment not yet joined, until every fragment is in the path.
+     */
+    private void joinFragments(){
+
+        KDTree ends = graph.getSpatialIndex().copy();
+        ends.reset();
+
+        int first = -1;
+
+        for(int v = 0; v < graph.size(); v++){
+
+            if(degree(v) == 2){
+                ends.remove(v); // Only the ends of fragments are joined
+            } else if(first < 0){
+                first = v;
+            }
+        }
+
+        if(first < 0){ // Already a single closed path
+            return;
+        }
+
+        int end = first;
+        int joinedFrom = -1;
+
+        while(true){
+
+            int other = otherEnd(end, joinedFrom);
+            ends.remove(end);
+            ends.remove(other);
+
+            int next = ends.nearest(other);
+
+            if(next < 0){ // Close the tour back to the first fragment
+                link(other, first);
+                return;
+            }
+
+            link(other, next);
+            end = next;
+            joinedFrom = other;
+        }
+    }
+
+    /**
+     * Returns the vertices in tour order by following the edges from the
+     * first vertex.
+     * @return vertex indices of the tour.
+     */
+    private int[] tourOrder(){
+
+        int n = graph.size();
+        int[] order = new int[n];
+
+        if(n == 0){
+            return order;
+        }
+
+        int previous = -1;
+        int current = 0;
+
+        for(int i = 0; i < n; i++){
+
+            order[i] = current;
+
+            int next = links[2 * current] != previous || n == 2
+                    ? links[2 * current] : links[2 * current + 1];
+
+            previous = current;
+            current = next;
+        }
+
+        return order;
+    }
+
+    /**
+     * Returns the other end of the fragment with the given end.
+     * @param end vertex with fewer than two edges in the fragment.
+     * @param joinedFrom vertex the end has just been joined to, which is
+     * not part of the fragment, or -1 if there is none.
+     * @return vertex at the other end of the fragment, or the same vertex if
+     * it has no edges.
+     */
+    private int otherEnd(int end, int joinedFrom){
+
+        int previous = joinedFrom;
+        int current = end;
+
+        while(true){
+
+            int next = links[2 * current] != previous
+                    ? links[2 * current] : links[2 * current + 1];
+
+            if(next < 0){
+                return current;
+            }
+
+            previous = current;
+            current = next;
+        }
+    }
+
+    /**
+     * Returns the root of the fragment of a vertex, halving the path to it.
+     * @param v vertex index.
+     * @return root vertex of the fragment.
+     */
+    private int find(int v){
+
+        while(parent[v] != v){
+            parent[v] = parent[parent[v]];
+            v = parent[v];
+        }
+        return v;
+    }
+
+    /**
+     * Returns the number of tour edges at a vertex.
+     * @param v vertex index.
+     * @return number of edges, zero to two.
+     */
+    private int degree(int v){
+
+        return (links[2 * v] < 0 ? 0 : 1) + (links[2 * v + 1] < 0 ? 0 : 1);
+    }
+
+    /**
+     * Adds an edge to the tour between two vertices.
+     * @param u first vertex.
+     * @param v second vertex.
+     */
+    private void link(int u, int v){
+
+        links[links[2 * u] < 0 ? 2 * u : 2 * u + 1] = v;
+        links[links[2 * v] < 0 ? 2 * v : 2 * v + 1] = u;
+    }
+
+    /**
+     * Moves a candidate edge down the heap until neither of its children is
+     * shorter. Equal edges are ordered by their index, so the tour does not
+     * depend on the heap layout.
+     * @param i position in the heap.
+     */
+    private void siftDown(int i){
+
+        int e = heap[i];
+
+        while(true){
+
+            int child = 2 * i + 1;
+
+            if(child >= heapSize){
+                break;
+            }
+
+            if(child + 1 < heapSize && less(heap[child + 1], heap[child])){
+                child++;
+            }
+
+            if(!less(heap[child], e)){
+                break;
+            }
+
+            heap[i] = heap[child];
+            i = child;
+        }
+
+        heap[i] = e;
+    }
+
+    /**
+     * Checks if a candidate edge comes before another.
+     * @param a first edge.
+     * @param b second edge.
+     * @return true if a is shorter, or as short with a lower index.
+     */
+    private boolean less(int a, int b){
+
+        return weights[a] < weights[b] || (weights[a] == weights[b] && a < b);
+    }
+}
@@ -0,0 +1,205 @@
+import java.util.Arrays;
+
+/**
+ * Space filling curve construction for the TSP. Each city is given its
+ * position along a Hilbert curve through the bounding box of the graph, and
+ * the tour visits the cities in the order of their positions, sorted with a
+ * radix sort. Cities close together along the curve are close together in
+ * the plane, so the tour is usually about a tenth longer than a nearest
+ * neighbor tour, but it is built in linear time with a few primitive arrays
+ * and no objects for the cities. It gives a first tour of very large graphs
+ * almost at once, and a quick start for the tour improvement stages.
+ */
+public class HilbertCurve extends TSP {
+
+    // Bits of each coordinate on the curve, so a curve position fills an int
+    private static final int ORDER = 16;
+    private static final int SIDE = (1 << ORDER) - 1;
+
+    // Bits of the curve position sorted in each pass of the radix sort
+    private static final int DIGIT = 8;
+    private static final int DIGIT_MASK = (1 << DIGIT) - 1;
+
+    /**
+     * Default Constructor. Sets the graph to run the TSP algorithm on.
+     * @param graph used in the TSP algorithm.
+     */
+    public HilbertCurve(Graph graph){
+
+        super(graph);
+        this.algorithmName = "HILBERT";
+    }
+
+    /**
+     * Builds the tour along the Hilbert curve.
+     */
+    @Override
+    public void execute(){
+
+        startRun();
+
+        RunEvents.Construction event = new RunEvents.Construction();
+        event.begin();
+
+        int[] order = curveOrder();
+        tour = new ArrayTour(order);
+        distance = calculateTotalDistance(order);
+
+        if(order.length > 0){
+
+            if(trace != null){
+                trace.record(Trace.CONSTRUCTION, graph.getIdentifier(order[0]),
+                        distance, 0, 0);
+            }
+
+            if(event.shouldCommit()){
+                event.start = graph.getIdentifier(order[0]);
+                event.length = distance;
+                event.commit();
+            }
+
+            if(incumbent != null){
+                incumbent.offer(order, distance, order[0]);
+            }
+
+            printSolution(graph.getIdentifier(order[0]), algorithmName);
+        }
+
+        stopRun();
+    }
+
+    /**
+     * Returns the vertices sorted by their position along the curve, with
+     * ties kept in index order.
+     * @return vertex indices in curve order.
+     */
+    private int[] curveOrder(){
+
+        int n = graph.size();
+        long minX = Long.MAX_VALUE, minY = Long.MAX_VALUE;
+        long maxX = Long.MIN_VALUE, maxY = Long.MIN_VALUE;
+
+        for(int v = 0; v < n; v++){
+            minX = Math.min(minX, graph.getX(v));
+            minY = Math.min(minY, graph.getY(v));
+            maxX = Math.max(maxX, graph.getX(v));
+            maxY = Math.max(maxY, graph.getY(v));
+        }
+
+        // One scale for both axes, so the curve keeps the shape of the map
+        long span = Math.max(1, Math.max(maxX - minX, maxY - minY));
+
+        int[] keys = new int[n];
+        int[] order = new int[n];
+
+        for(int v = 0; v < n; v++){
+
+            int x = (int) ((graph.getX(v) - minX) * SIDE / span);
+            int y = (int) ((graph.getY(v) - minY) * SIDE / span);
+
+            keys[v] = position(x, y);
+            order[v] = v;
+        }
+
+        return radixSort(keys, order);
+    }
+
+    /**
+     * Returns the position of a cell along the Hilbert curve. The curve
+     * covers 2^ORDER cells on each side, so the position takes all 32 bits
+     * and is read as an unsigned number. Rather than turning the quadrants
+     * one level at a time, which branches on every bit, the turns of all
+     * the levels are found together with a prefix scan over the bits of the
+     * coordinates, so every city takes the same few operations.
+     * @param x column of the cell.
+     * @param y row of the cell.
+     * @return position along the curve.
+     */
+    private static int position(int x, int y){
+
+        // Turns taken at the first level, one bit for each level
+        int a = x ^ y;
+        int b = SIDE ^ a;
+        int c = SIDE ^ (x | y);
+        int d = x & (y ^ SIDE);
+
+        int turnA = a | (b >>> 1);
+        int turnB = (a >>> 1) ^ a;
+        int turnC = ((c >>> 1) ^ (b & (d >>> 1))) ^ c;
+        int turnD = ((a & (c >>> 1)) ^ (d >>> 1)) ^ d;
+
+        // Combine the turns over 2, 4 and 8 levels at a time
+        for(int shift = 2; shift <= ORDER / 2; shift <<= 1){
+
+            a = turnA;
+            b = turnB;
+            c = turnC;
+            d = turnD;
+
+            turnA = (a & (a >>> shift)) ^ (b & (b >>> shift));
+            turnB = (a & (b >>> shift)) ^ (b & ((a ^ b) >>> shift));
+            turnC ^= (a & (c >>> shift)) ^ (b & (d >>> shift));
+            turnD ^= (b & (c >>> shift)) ^ ((a ^ b) & (d >>> shift));
+        }
+
+        a = turnC ^ (turnC >>> 1);
+        b = turnD ^ (turnD >>> 1);
+
+        // The two bits of the position at each level
+        int low = x ^ y;
+        int high = b | (SIDE ^ (low | a));
+
+        return interleave(high) << 1 | interleave(low);
+    }
+
+    /**
+     * Spreads the bits of a coordinate out to every other bit.
+     * @param bits of ORDER bits.
+     * @return the bits in the even bit positions.
+     */
+    private static int interleave(int bits){
+
+        bits = (bits | bits << 8) & 0x00FF00FF;
+        bits = (bits | bits << 4) & 0x0F0F0F0F;
+        bits = (bits | bits << 2) & 0x33333333;
+        bits = (bits | bits << 1) & 0x55555555;
+
+        return bits;
+    }
+
+    /**
+     * Sorts the vertices by their unsigned keys, least significant digit
+     * first. Each pass is stable, so equal keys keep the order they are in.
+     * @param keys curve position of each vertex, indexed by vertex.
+     * @param order vertex indices to sort.
+     * @return vertex indices in key order.
+     */
+    private static int[] radixSort(int[] keys, int[] order){
+
+        int[] sorted = new int[order.length];
+        int[] counts = new int[DIGIT_MASK + 2];
+
+        for(int shift = 0; shift < Integer.SIZE; shift += DIGIT){
+
+            Arrays.fill(counts, 0);
+
+            for(int v: order){
+                counts[((keys[v] >>> shift) & DIGIT_MASK) + 1]++;
+            }
+
+            for(int d = 0; d <= DIGIT_MASK; d++){
+                counts[d + 1] += counts[d];
+            }
+
+            for(int v: order){
+                sorted[counts[(keys[v] >>> shift) & DIGIT_MASK]++] = v;
+            }
+
+            int[] swap = order;
+            order = sorted;
+            sorted = swap;
+        }
+
+        return order;
+    }
+}
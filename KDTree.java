@@ -0,0 +1,355 @@
+import java.util.Arrays;
+
+/**
+ * A two dimensional k-d tree over the vertices of a graph, identified by
+ * their index in the graph. Answers nearest neighbor queries among the
+ * vertices that have not been removed, which lets the nearest neighbor
+ * algorithm find the closest unvisited vertex without scanning the whole
+ * graph. The tree is stored implicitly in an array, where the node for the
+ * range [lo, hi) is at the middle of the range and its children cover the
+ * halves on either side of it. Removals are stamped with the current epoch,
+ * so restoring every vertex only starts a new epoch.
+ */
+public class KDTree {
+
+    // Largest subtree that is scanned instead of searched
+    private static final int LEAF_SIZE = 8;
+
+    private final int[] xs;
+    private final int[] ys;
+    private final int[] nodeXs;
+    private final int[] nodeYs;
+    private final int[] nodes;
+    private final int[] positions;
+    private final int[] initialCounts;
+
+    private final int[] counts;
+    private final int[] countEpochs;
+    private final int[] removedEpochs;
+    private int epoch;
+
+    private int nearest;
+    private long nearestDistance;
+
+    /**
+     * Constructor. Builds the tree over all the vertices, splitting on the
+     * x-coordinate at even depths and the y-coordinate at odd depths.
+     * @param xs x-coordinates of the vertices.
+     * @param ys y-coordinates of the vertices.
+     */
+    public KDTree(int[] xs, int[] ys){
+
+        this.xs = xs;
+        this.ys = ys;
+        this.nodes = new int[xs.length];
+        this.positions = new int[xs.length];
+        this.initialCounts = new int[xs.length];
+
+        for(int i = 0; i < nodes.length; i++){
+            nodes[i] = i;
+        }
+
+        build(0, nodes.length, 0);
+
+        // Coordinates are also kept in tree order so a search reads them
+        // from the same position as the node
+        this.nodeXs = new int[nodes.length];
+        this.nodeYs = new int[nodes.length];
+
+        for(int m = 0; m < nodes.length; m++){
+            positions[nodes[m]] = m;
+            nodeXs[m] = xs[nodes[m]];
+            nodeYs[m] = ys[nodes[m]];
+        }
+
+        this.counts = new int[nodes.length];
+        this.countEpochs = new int[nodes.length];
+        this.removedEpochs = new int[nodes.length];
+        this.epoch = 1;
+    }
+
+    /**
+     * Constructor. Creates a tree that shares the structure of another tree
+     * but keeps its own record of removed vertices, with none removed.
+     * @param tree to share the structure of.
+     */
+    private KDTree(KDTree tree){
+
+        this.xs = tree.xs;
+        this.ys = tree.ys;
+        this.nodeXs = tree.nodeXs;
+        this.nodeYs = tree.nodeYs;
+        this.nodes = tree.nodes;
+        this.positions = tree.positions;
+        this.initialCounts = tree.initialCounts;
+
+        this.counts = new int[nodes.length];
+        this.countEpochs = new int[nodes.length];
+        this.removedEpochs = new int[nodes.length];
+        this.epoch = 1;
+    }
+
+    /**
+     * Returns a tree over the same vertices with none of them removed. The
+     * copy can remove vertices independently of this tree, so each search
+     * thread can keep its own copy.
+     * @return independent copy of the tree.
+     */
+    public KDTree copy(){
+
+        return new KDTree(this);
+    }
+
+    /**
+     * Returns the number of vertices in the tree that have not been removed.
+     * @return number of remaining vertices.
+     */
+    public int size(){
+
+        return nodes.length == 0 ? 0 : count(nodes.length >>> 1);
+    }
+
+    /**
+     * Restores every removed vertex to the tree by starting a new epoch.
+     */
+    public void reset(){
+
+        epoch++;
+
+        // Stamps from earlier epochs could match again once the epoch wraps
+        if(epoch == Integer.MAX_VALUE){
+            Arrays.fill(countEpochs, 0);
+            Arrays.fill(removedEpochs, 0);
+            epoch = 1;
+        }
+    }
+
+    /**
+     * Removes a vertex from the tree so that it is no longer returned by
+     * nearest neighbor queries.
+     * @param vertex index of the vertex to remove.
+     */
+    public void remove(int vertex){
+
+        int position = positions[vertex];
+
+        if(removedEpochs[position] == epoch){
+            return;
+        }
+
+        removedEpochs[position] = epoch;
+
+        // Walk down from the root to the vertex, updating the counts of
+        // every subtree that contains it
+        int lo = 0;
+        int hi = nodes.length;
+        int m = (lo + hi) >>> 1;
+
+        while(m != position){
+
+            decrementCount(m);
+
+            if(position < m){
+                hi = m;
+            } else {
+                lo = m + 1;
+            }
+            m = (lo + hi) >>> 1;
+        }
+        decrementCount(m);
+    }
+
+    /**
+     * Returns the remaining vertex closest to the given vertex. Distances are
+     * rounded as in {@link Point#distance(Point)} and ties are broken by the
+     * lowest vertex index, which is the same vertex a linear scan of the
+     * graph in order would find.
+     * @param vertex index of the vertex to search from.
+     * @return index of the nearest remaining vertex, or -1 if there is none.
+     */
+    public int nearest(int vertex){
+
+        nearest = -1;
+        nearestDistance = Long.MAX_VALUE;
+
+        search(xs[vertex], ys[vertex], 0, nodes.length, 0);
+
+        return nearest;
+    }
+
+    /**
+     * Searches the subtree for the range [lo, hi) for a vertex closer to the
+     * query coordinates than the nearest one found so far. Small subtrees are
+     * scanned in order instead of being searched node by node.
+     * @param x coordinate of the query.
+     * @param y coordinate of the query.
+     * @param lo first position of the subtree.
+     * @param hi position after the last position of the subtree.
+     * @param depth of the subtree root in the tree.
+     */
+    private void search(int x, int y, int lo, int hi, int depth){
+
+        if(lo >= hi){
+            return;
+        }
+
+        int m = (lo + hi) >>> 1;
+
+        if(count(m) == 0){ // Nothing left in this subtree
+            return;
+        }
+
+        if(hi - lo <= LEAF_SIZE){
+
+            for(int i = lo; i < hi; i++){
+                if(removedEpochs[i] != epoch){
+                    consider(x, y, i);
+                }
+            }
+            return;
+        }
+
+        if(removedEpochs[m] != epoch){
+            consider(x, y, m);
+        }
+
+        long difference = (depth & 1) == 0
+                ? (long) x - nodeXs[m] : (long) y - nodeYs[m];
+
+        // Search the side of the splitting line the query is on first, then
+        // the other side if it could hold a vertex at least as close. Equal
+        // distances are searched as they may hold a lower vertex index.
+        if(difference < 0){
+            search(x, y, lo, m, depth + 1);
+            if(-difference <= nearestDistance){
+                search(x, y, m + 1, hi, depth + 1);
+            }
+        } else {
+            search(x, y, m + 1, hi, depth + 1);
+            if(difference <= nearestDistance){
+                search(x, y, lo, m, depth + 1);
+            }
+        }
+    }
+
+    /**
+     * Makes the vertex at the given position the nearest vertex if it is
+     * closer to the query coordinates than the nearest one found so far. The
+     * rounded distance is only computed when the squared distance is small
+     * enough for it to be at most the nearest distance, which is when it is
+     * no more than d * d + d for a nearest distance of d. Equal distances are
+     * kept as they may belong to a lower vertex index.
+     * @param x coordinate of the query.
+     * @param y coordinate of the query.
+     * @param m position of the vertex in the tree.
+     */
+    private void consider(int x, int y, int m){
+
+        long dx = (long) x - nodeXs[m];
+        long dy = (long) y - nodeYs[m];
+
+        if(nearest != -1 && dx * dx + dy * dy
+                > nearestDistance * nearestDistance + nearestDistance){
+            return;
+        }
+
+        int vertex = nodes[m];
+        long distance = Point.distance(x, y, nodeXs[m], nodeYs[m]);
+
+        if(distance < nearestDistance
+                || (distance == nearestDistance && vertex < nearest)){
+            nearestDistance = distance;
+            nearest = vertex;
+        }
+    }
+
+    /**
+     * Returns the number of vertices left in the subtree rooted at the given
+     * position, which is every vertex in it if none were removed this epoch.
+     * @param m position of the subtree root.
+     * @return number of vertices left in the subtree.
+     */
+    private int count(int m){
+
+        return countEpochs[m] == epoch ? counts[m] : initialCounts[m];
+    }
+
+    /**
+     * Removes one vertex from the count of the subtree rooted at the given
+     * position.
+     * @param m position of the subtree root.
+     */
+    private void decrementCount(int m){
+
+        if(countEpochs[m] != epoch){
+            counts[m] = initialCounts[m];
+            countEpochs[m] = epoch;
+        }
+        counts[m]--;
+    }
+
+    /**
+     * Builds the subtree for the range [lo, hi) by placing the median vertex,
+     * along the axis for the depth, in the middle of the range.
+     * @param lo first position of the subtree.
+     * @param hi position after the last position of the subtree.
+     * @param depth of the subtree root in the tree.
+     */
+    private void build(int lo, int hi, int depth){
+
+        if(lo >= hi){
+            return;
+        }
+
+        int m = (lo + hi) >>> 1;
+        int[] axis = (depth & 1) == 0 ? xs : ys;
+
+        select(axis, lo, hi - 1, m);
+        initialCounts[m] = hi - lo;
+
+        build(lo, m, depth + 1);
+        build(m + 1, hi, depth + 1);
+    }
+
+    /**
+     * Partially sorts the nodes in [left, right] by the given coordinate so
+     * that the node at k is in its sorted position, with no larger coordinate
+     * before it and no smaller coordinate after it.
+     * @param axis coordinates to sort by.
+     * @param left first position to sort.
+     * @param right last position to sort.
+     * @param k position to place.
+     */
+    private void select(int[] axis, int left, int right, int k){
+
+        while(left < right){
+
+            int pivot = axis[nodes[(left + right) >>> 1]];
+            int i = left;
+            int j = right;
+
+            while(i <= j){
+
+                while(axis[nodes[i]] < pivot){ i++; }
+                while(axis[nodes[j]] > pivot){ j--; }
+
+                if(i <= j){
+                    int swap = nodes[i];
+                    nodes[i] = nodes[j];
+                    nodes[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+
+            // Continue with the side that holds position k
+            if(k <= j){
+                right = j;
+            } else if(k >= i){
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,490 @@
+import java.util.ArrayList;
+
+/**
+ * Lin-Kernighan style tour improvement for the TSP. Starting from a given
+ * tour, such as one from the nearest neighbor algorithm, it searches for
+ * sequential moves that remove and add edges one pair at a time, going as
+ * deep as the running gain stays positive. Each step is a 2-opt move, so a
+ * chain of two steps is a sequential 3-opt move and longer chains go deeper.
+ * Only near neighbors are tried as new edges, the first few levels try more
+ * than one of them before settling on one, and vertices whose search fails
+ * are skipped until a move changes the tour around them.
+ */
+public class LinKernighan extends TSP{
+
+    // Number of candidates tried at each level before only the best one
+    private static final int[] BREADTH = {5, 3};
+
+    private int neighborListSize;
+    private int maxDepth;
+    private TSP construction;
+
+    private int[][] candidates;
+    private long[][] scores;
+    private int[] added;
+    private int[] touched;
+    private int touchedCount;
+    private DistanceOracle distances;
+    private NeighborLists neighbors;
+
+    /**
+     * Default Constructor. Sets the graph to run the TSP algorithm on and
+     * initializes the search settings to their defaults.
+     * @param graph used in the TSP algorithm.
+     */
+    public LinKernighan(Graph graph){
+
+        super(graph);
+        this.algorithmName = "LK";
+        this.neighborListSize = 10;
+        this.maxDepth = 30;
+    }
+
+    /**
+     * Sets the number of near neighbors tried as a new edge for each vertex.
+     * @param neighborListSize number of nearest neighbors, at least one.
+     */
+    public void setNeighborListSize(int neighborListSize){
+
+        this.neighborListSize = Math.max(1, neighborListSize);
+    }
+
+    /**
+     * Sets the most steps a single move can take.
+     * @param maxDepth longest chain of steps, at least one.
+     */
+    public void setMaxDepth(int maxDepth){
+
+        this.maxDepth = Math.max(1, maxDepth);
+    }
+
+    /**
+     * Sets the algorithm that builds the tour to improve, which is executed
+     * before the tour is improved and takes the place of a starting tour.
+     * @param construction algorithm for the starting tour.
+     */
+    public void setConstruction(TSP construction){
+
+        this.construction = construction;
+    }
+
+    /**
+     * Stops the run and the construction algorithm, if one is set.
+     */
+    @Override
+    public void stop(){
+
+        super.stop();
+
+        if(construction != null){
+            construction.stop();
+        }
+    }
+
+    /**
+     * Sets the tour to improve, which must visit every vertex in the graph.
+     * @param startingTour in order of travel.
+     */
+    public void setStartingTour(ArrayList<Vertex> startingTour){
+
+        int[] order = new int[startingTour.size()];
+
+        for(int i = 0; i < order.length; i++){
+            order[i] = startingTour.get(i).getIndex();
+        }
+
+        this.tour = Tour.create(order);
+    }
+
+    /**
+     * Executes the construction algorithm if one is set, followed by the
+     * Lin-Kernighan tour improvement of its tour. The construction stops at
+     * the deadline of this run, so the time limit covers both. In a
+     * portfolio, a shorter shared best tour is improved afterwards as well,
+     * so the algorithm never does worse than on its own.
+     */
+    @Override
+    public void execute(){
+
+        startRun();
+
+        if(construction != null){
+
+            if(trace != null){
+                construction.setTrace(trace);
+            }
+
+            if(progress != null){
+                construction.setProgress(progress);
+            }
+
+            if(hasDeadline()){
+                construction.setDeadline(deadline);
+            }
+
+            construction.setIncumbent(incumbent);
+            construction.execute();
+            setStartingTour(construction.getTour());
+            firstSolutionTime = construction.getFirstSolutionTime();
+        }
+
+        // Fall back on the shared best tour if the construction ran out of
+        // time before it had a tour of every vertex
+        if(tour.size() != graph.size() && hasIncumbentTour()){
+            setStartingTour(graph.getVertices(incumbent.getTour()));
+        }
+
+        improveStartingTour();
+
+        // Improve the shared best tour too if another algorithm of the
+        // portfolio has found a shorter one and there is time left
+        if(hasIncumbentTour() && incumbent.getDistance() < distance
+                && !timeLimitHasBeenReached()){
+
+            setStartingTour(graph.getVertices(incumbent.getTour()));
+            improveStartingTour();
+        }
+
+        stopRun();
+    }
+
+    /**
+     * Returns whether the shared best tour visits every vertex in the graph.
+     * @return true if there is a shared tour to start from.
+     */
+    private boolean hasIncumbentTour(){
+
+        return incumbent != null
+                && incumbent.getTour().length == graph.size();
+    }
+
+    /**
+     * Executes the Lin-Kernighan tour improvement on the starting tour until
+     * no vertex has an improving move left or the time limit is reached. The
+     * vertices are taken in graph order if no starting tour was given.
+     */
+    public void executeLinKernighan(){
+
+        startRun();
+        improveStartingTour();
+        stopRun();
+    }
+
+    /**
+     * Improves the starting tour within the run that has been started.
+     */
+    private void improveStartingTour(){
+
+        distances = graph.getDistanceOracle();
+        neighbors = graph.getNeighborLists(neighborListSize);
+
+        if(tour.size() != graph.size()){
+
+            int[] order = new int[graph.size()];
+
+            for(int i = 0; i < order.length; i++){
+                order[i] = i;
+            }
+
+            tour = Tour.create(order);
+        }
+
+        candidates = new int[maxDepth][BREADTH[0]];
+        scores = new long[maxDepth][BREADTH[0]];
+        added = new int[2 * maxDepth];
+        touched = new int[2 * maxDepth + 2];
+        distance = calculateTotalDistance(tour.toArray());
+
+        RunEvents.Improvement event = new RunEvents.Improvement();
+        event.begin();
+        long initial = distance;
+
+        if(tour.size() >= 5){ // Smaller tours have no sequential moves
+            improve();
+        }
+
+        // Walking a two-level tour is linear, so read the order only once
+        int[] improved = tour.toArray();
+
+        if(incumbent != null){
+            incumbent.offer(improved, distance, improved[0]);
+        }
+
+        if(event.shouldCommit()){
+            event.algorithm = algorithmName;
+            event.start = graph.getIdentifier(improved[0]);
+            event.initialLength = initial;
+            event.finalLength = distance;
+            event.commit();
+        }
+
+        printSolution(graph.getIdentifier(improved[0]), algorithmName);
+    }
+
+    /**
+     * Searches for improving moves from every vertex, in the way of the
+     * neighbor list 2-opt, until none are left.
+     */
+    private void improve(){
+
+        int t1, t2;
+        long gain;
+
+        int[] order = tour.toArray();
+        int first = graph.getIdentifier(order[0]);
+        WorkQueue queue = new WorkQueue(order);
+        long evaluated = 0;
+        long applied = 0;
+        int searched = 0;
+
+        while(!queue.isEmpty() && !timeLimitHasBeenReached()){
+
+            t1 = queue.poll();
+
+            // Record each time as many vertices as the tour has are searched
+            if(++searched == order.length){
+
+                movesEvaluated.add(evaluated);
+
+                if(trace != null){
+                    trace.record(Trace.LIN_KERNIGHAN, first, distance,
+                            evaluated, applied);
+                }
+                evaluated = 0;
+                applied = 0;
+                searched = 0;
+            }
+
+            // Break the edge to the vertex after t1, then the one before it
+            for(int direction = 1; direction >= -1; direction -= 2){
+
+                t2 = neighbor(t1, direction);
+                touchedCount = 0;
+
+                gain = step(0, t1, t2, distances.distance(t1, t2));
+                evaluated++;
+
+                if(gain > 0){
+
+                    distance -= gain;
+                    applied++;
+
+                    // Search again from every vertex the move touched
+                    queue.offer(t1, t2);
+                    for(int i = 0; i < touchedCount; i++){
+                        queue.offer(touched[i]);
+                    }
+                    break;
+                }
+            }
+        }
+
+        movesEvaluated.add(evaluated);
+
+        if(trace != null){
+            trace.record(Trace.LIN_KERNIGHAN, first, distance, evaluated, applied);
+        }
+    }
+
+    /**
+     * Takes one step of a move whose edge (t1, t2) has been removed, with
+     * the gain of the move so far. Adds an edge from t2 to a near neighbor t3
+     * and removes the edge from t3 to its neighbor t4 that keeps a tour,
+     * which then ends at t4. The move is kept as soon as closing it with the
+     * edge (t4, t1) shortens the tour, otherwise the next step is tried from
+     * t4 while the gain stays positive.
+     * @param level of the step, zero for the first.
+     * @param t1 start of the move.
+     * @param t2 end of the removed edge.
+     * @param gain of the removed edges less the added edges so far.
+     * @return the gain of the kept move, or zero if the tour is unchanged.
+     */
+    private long step(int level, int t1, int t2, long gain){
+
+        int breadth = level < BREADTH.length ? BREADTH[level] : 1;
+        int[] candidates = this.candidates[level];
+        long[] scores = this.scores[level];
+        int count = 0;
+
+        // With t2 after t1, t4 must come before t3, and the other way around
+        int direction = tour.next(t1) == t2 ? -1 : 1;
+
+        int t3, t4;
+        long partial, score;
+
+        // Keep the best few candidates by gain after removing (t3, t4)
+        for(int rank = 0; rank < neighbors.size(); rank++){
+
+            t3 = neighbors.get(t2, rank);
+            partial = gain - distances.distance(t2, t3);
+
+            // Neighbors are sorted so no farther one keeps a positive gain
+            if(partial <= 0){
+                break;
+            }
+
+            t4 = neighbor(t3, direction);
+
+            if(t3 == t1 || t3 == tour.next(t2) || t3 == tour.prev(t2)
+                    || wasAdded(level, t3, t4)){
+                continue;
+            }
+
+            score = partial + distances.distance(t3, t4);
+
+            // Insert the candidate in order of score
+            int i = Math.min(count, breadth - 1);
+
+            if(count == breadth && score <= scores[i]){
+                continue;
+            }
+
+            while(i > 0 && scores[i - 1] < score){
+                candidates[i] = candidates[i - 1];
+                scores[i] = scores[i - 1];
+                i--;
+            }
+
+            candidates[i] = t3;
+            scores[i] = score;
+            count = Math.min(count + 1, breadth);
+        }
+
+        for(int i = 0; i < count; i++){
+
+            t3 = candidates[i];
+            t4 = neighbor(t3, direction);
+
+            // Replace (t1, t2) and (t4, t3) with (t1, t4) and (t2, t3)
+            tour.flip(t1, t2, t4, t3);
+            added[2 * level] = t2;
+            added[2 * level + 1] = t3;
+            touched[touchedCount++] = t3;
+            touched[touchedCount++] = t4;
+
+            long closed = scores[i] - distances.distance(t4, t1);
+
+            if(closed > 0){
+                return closed;
+            }
+
+            if(level + 1 < maxDepth){
+
+                long deeper = step(level + 1, t1, t4, scores[i]);
+
+                if(deeper > 0){
+                    return deeper;
+                }
+            }
+
+            // Undo the step before trying the next candidate
+            tour.flip(t1, t4, t2, t3);
+            touchedCount -= 2;
+        }
+
+        return 0;
+    }
+
+    /**
+     * Checks if an edge was added by an earlier step of the current move, as
+     * an added edge is never removed again.
+     * @param level of the current step.
+     * @param u vertex of the edge.
+     * @param v vertex of the edge.
+     * @return true if the edge was added and false otherwise.
+     */
+    private boolean wasAdded(int level, int u, int v){
+
+        for(int i = 0; i < level; i++){
+
+            if((added[2 * i] == u && added[2 * i + 1] == v)
+                    || (added[2 * i] == v && added[2 * i + 1] == u)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the vertex after or before a vertex in the tour.
+     * @param vertex in the tour.
+     * @param direction 1 for the vertex after and -1 for the vertex before.
+     * @return neighboring vertex in the tour.
+     */
+    private int neighbor(int vertex, int direction){
+
+        return direction == 1 ? tour.next(vertex) : tour.prev(vertex);
+    }
+
+    /**
+     * Returns the distance of the best tour so far, which is that of the
+     * construction algorithm until the tour is being improved.
+     * @return tour distance.
+     */
+    @Override
+    public long getDistance(){
+
+        if(distance == Long.MAX_VALUE && construction != null){
+            return construction.getDistance();
+        }
+        return distance;
+    }
+
+    /**
+     * Returns the number of start vertices whose search has finished, which
+     * are those of the construction algorithm if there is one.
+     * @return starts completed.
+     */
+    @Override
+    public long getStartsCompleted(){
+
+        if(construction != null){
+            return construction.getStartsCompleted();
+        }
+        return super.getStartsCompleted();
+    }
+
+    /**
+     * Returns the number of start vertices searched, which are those of the
+     * construction algorithm if there is one.
+     * @return starts to search.
+     */
+    @Override
+    public long getStarts(){
+
+        if(construction != null){
+            return construction.getStarts();
+        }
+        return super.getStarts();
+    }
+
+    /**
+     * Returns the number of moves evaluated so far, including those of the
+     * construction algorithm.
+     * @return moves evaluated.
+     */
+    @Override
+    public long getMovesEvaluated(){
+
+        if(construction != null){
+            return construction.getMovesEvaluated() + super.getMovesEvaluated();
+        }
+        return super.getMovesEvaluated();
+    }
+
+    /**
+     * Prints the algorithm details to the console.
+     */
+    @Override
+    public void printAlgorithmDetails(){
+
+        if(construction != null){
+            construction.printAlgorithmDetails();
+        }
+
+        super.printAlgorithmDetails();
+
+        System.out.println("Neighbor list size: " + neighborListSize);
+        System.out.println("Maximum move depth: " + maxDepth);
+    }
+}
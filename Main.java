@@ -1,4 +1,6 @@
 import java.text.DecimalFormat;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Runs the Traveling Salesman Problem (TSP) algorithm on a set of given
@@ -15,9 +17,25 @@ public class Main {
     private static FileInputProcessor file;
     private static Graph graph;
     private static final String[] TSP_ALGORITHMS = new String[]
-            {"NN", "NNR", "NN2OPT", "NNR2OPT"};
+            {"NN", "NNR", "NN2OPT", "NNR2OPT", "NN2OPTK", "NNR2OPTK", "NNLK",
+             "PORTFOLIO", "GREEDY", "GREEDY2OPT", "GREEDY2OPTK", "HILBERT",
+             "HILBERT2OPT", "HILBERT2OPTK"};
+    private static final String[] PORTFOLIO_STRATEGIES = new String[]
+            {"NNR", "NN2OPT", "NN2OPTK", "NNLK"};
     private static final String[] MAX_RUN_TIME = new String[]
             {"NONE", "MTS", "MTM", "MTH"};
+    private static final String THREADS = "THREADS";
+    private static final String NEIGHBORS = "NEIGHBORS";
+    private static final String OR_OPT = "OROPT";
+    private static final String CHECKPOINT = "CHECKPOINT";
+    private static final String RESUME = "RESUME";
+    private static final String PRUNE = "PRUNE";
+    private static final String BATCH = "BATCH";
+    private static final String SERVE = "SERVE";
+    private static final String[] SETTINGS = new String[]
+            {THREADS, NEIGHBORS, OR_OPT, CHECKPOINT, PRUNE};
+    private static final int DEFAULT_CHECKPOINT_INTERVAL = 60;
+    private static final int DEFAULT_NEIGHBORS = 10;
     private static Timer timer;
 
     /**
@@ -35,6 +53,20 @@ public class Main {
      *      NNR - Nearest Neighbor repetition
      *      NN2OPT - Nearest neighbor with 2OPT Swap
      *      NNR2OPT - Nearest neighbor repetition with 2-optimal Swaps
+     *      NN2OPTK - Nearest neighbor with 2OPT Swaps to near neighbors
+     *      NNR2OPTK - Nearest neighbor repetition with 2OPT Swaps to near
+     *                 neighbors
+     *      NNLK - Nearest neighbor with Lin-Kernighan tour improvement
+     *      PORTFOLIO - NNR, NN2OPT, NN2OPTK from another start and NNLK at
+     *                  the same time, sharing the best tour
+     *      GREEDY - Greedy edge, joining the shortest edges to near neighbors
+     *      GREEDY2OPT - Greedy edge with 2OPT Swaps
+     *      GREEDY2OPTK - Greedy edge with 2OPT Swaps to near neighbors
+     *      HILBERT - Hilbert curve order, built in linear time for huge
+     *                inputs
+     *      HILBERT2OPT - Hilbert curve order with 2OPT Swaps
+     *      HILBERT2OPTK - Hilbert curve order with 2OPT Swaps to near
+     *                     neighbors
      *
      * Max time to run the algorithm follow by its value
      *      MTS-seconds maximum time in seconds
@@ -46,19 +78,53 @@ public class Main {
      *      integer
      *      NONE
      *
+     * Optional settings may follow the optimal tour length
+     *      THREADS-count number of threads for the repetitive algorithms
+     *      NEIGHBORS-count number of near neighbors for the 2OPTK, LK and
+     *                      GREEDY algorithms
+     *      OROPT-length adds an Or-opt stage moving segments of up to length
+     *      CHECKPOINT-seconds saves checkpoints of the nearest neighbor
+     *                         algorithms this often, or 0 to only save one
+     *                         when stopped, off unless given
+     *      RESUME continues from the checkpoint of an earlier run, and saves
+     *             checkpoints every 60 seconds unless CHECKPOINT is given
+     *      PRUNE-percent abandons the starts of NNR2OPT and NNR2OPTK whose
+     *                    tours cannot come within percent of the best tour
+     *
      * A complete command line examples would be:
      *      TSP_loc.txt NNR2OPT MTH-2.0 10953
      *      TSP_loc.txt NN NONE NONE
      *      TSP_loc.txt NNR MTM-3.5 NONE
+     *      TSP_loc.txt NNR2OPT MTS-180 NONE THREADS-8
+     *      TSP_loc.txt NNR MTH-16 NONE RESUME
      *      Tsp_loc.txt
      *
      * If nothing but a filename is provided, the program defaults to the
      * NNR2OPT options without a maximum time limit or optimal tour length.
      *
+     * BATCH followed by a manifest file solves every line of the manifest,
+     * each given in the form of the arguments above, see {@link Batch}.
+     * SERVE starts a local HTTP service solving requests, see
+     * {@link Server}.
+     *
      * @param args file name and options to run the TSP algorithm.
      */
     public static void main(String[] args) {
 
+        if(args.length > 0 && args[0].compareTo(BATCH) == 0){
+
+            // Solve every instance of a manifest in this JVM
+            Batch.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
+        if(args.length > 0 && args[0].compareTo(SERVE) == 0){
+
+            // Keep solving requests in this JVM until it is stopped
+            Server.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
         timer = new Timer();
         timer.startTimer(); // Starts the timer for the maximum time limit
 
@@ -72,7 +138,12 @@ public class Main {
                 graph = new Graph();
                 graph.fillGraphContentsFromFile(file);
 
-                if(hasOptionsToAdd(args)){ // Execute with options
+                if(graph.isEmpty()){ // Print an error message, no tour to find
+
+                    System.out.println("The file provided has NO cities...");
+                    System.out.println("Please rerun the application with a valid file.");
+
+                } else if(hasOptionsToAdd(args)){ // Execute with options
 
                     executeWithOptions(args);
 
@@ -110,7 +181,23 @@ public class Main {
 
         System.out.println("\nDisplaying current best distances...\n");
 
+        Trace trace = Trace.open(); // Record the progress if selected
+        nn.setTrace(trace);
+
+        Progress progress = new Progress(); // Print the best tours
+        nn.setProgress(progress);
+
+        RunMetrics metrics = new RunMetrics(nn); // Publish the live metrics
+        metrics.start();
+
         nn.executeNearestNeighbor();
+
+        metrics.stop();
+        progress.close();
+
+        if(trace != null){
+            trace.close();
+        }
         nn.outputPathToFile(fileName + ".tour");
 
         System.out.println("\nBest Distance: " + nn.getDistance());
@@ -125,43 +212,64 @@ public class Main {
      */
     private static void executeWithOptions(String[] options){
 
-        final int ALGORITHM = 1;
         final int MAX_TIME = 2;
         final int OPTIMAL = 3;
 
         DecimalFormat format = new DecimalFormat("#.####");
 
-        NearestNeighbor nn = new NearestNeighbor(graph);
-
         String[] timeValues = options[MAX_TIME].split("-");
-        boolean[] algorithms = algorithmChoice(options[ALGORITHM]);
 
-        // Check if the maximum run time values are valid
-        if(areTimeOptionsValid(timeValues)){
-            nn.setAlgorithmOptions(algorithms[0], algorithms[1],
-                    maxTimeUnit(timeValues[0]), maxTime(timeValues[1]));
-        } else { // If not run without maximum run time
-            nn.setAlgorithmOptions(algorithms[0], algorithms[1]);
+        if(!areTimeOptionsValid(timeValues)){
             System.out.println("\n# Provided maximum run time is none.");
         }
 
-        nn.printAlgorithmDetails();
+        TSP tsp = createAlgorithm(graph, options);
+
+        int checkpointInterval = setting(options, CHECKPOINT, -1);
+        boolean resume = hasFlag(options, RESUME);
+
+        // Save the progress of the search to resume it later if selected
+        if(tsp instanceof NearestNeighbor
+                && (checkpointInterval >= 0 || resume)){
+
+            ((NearestNeighbor) tsp).setCheckpoint(options[0],
+                    checkpointInterval >= 0 ? checkpointInterval
+                            : DEFAULT_CHECKPOINT_INTERVAL, resume);
+        }
+
+        tsp.printAlgorithmDetails();
 
         System.out.println("\nDisplaying current best distances...\n");
 
-        nn.executeNearestNeighbor(); // Execute the algorithm
+        Trace trace = Trace.open(); // Record the progress if selected
+        tsp.setTrace(trace);
+
+        Progress progress = new Progress(); // Print the best tours
+        tsp.setProgress(progress);
+
+        RunMetrics metrics = new RunMetrics(tsp); // Publish the live metrics
+        metrics.start();
+
+        tsp.execute(); // Execute the algorithm
 
-        if(nn.timeLimitHasBeenReached()){
+        metrics.stop();
+        progress.close();
+
+        if(trace != null){
+            trace.close();
+        }
+
+        if(tsp.timeLimitHasBeenReached()){
             System.out.println("\nUsing best result within time limit...");
         }
 
-        nn.outputPathToFile(options[0] + ".tour"); // Print the results
+        tsp.outputPathToFile(options[0] + ".tour"); // Print the results
 
-        System.out.println("\nBest Distance: " + nn.getDistance());
+        System.out.println("\nBest Distance: " + tsp.getDistance());
 
         if(isOptimalTourLengthValid(options[OPTIMAL])){ // Print ratio if provided
             System.out.println("Ratio to Optimal: "
-                    + format.format(nn.getOptimalSolutionRatio(optimalTourLength(options[OPTIMAL]))));
+                    + format.format(tsp.getOptimalSolutionRatio(optimalTourLength(options[OPTIMAL]))));
         }
 
         timer.stopTimer();
@@ -176,6 +284,243 @@ public class Main {
         }
     }
 
+    /**
+     * Creates the TSP algorithm selected by the command line arguments, with
+     * its maximum run time and optional settings, ready to execute on the
+     * graph. The arguments are given as they are to the application.
+     * @param graph to run the TSP algorithm on.
+     * @param options command line arguments, with the algorithm and maximum
+     *                run time after the file name.
+     * @return TSP algorithm to execute.
+     */
+    public static TSP createAlgorithm(Graph graph, String[] options){
+
+        final int ALGORITHM = 1;
+
+        if(options[ALGORITHM].compareTo(TSP_ALGORITHMS[7]) == 0){
+            return createPortfolio(graph, options);
+        }
+
+        return createStrategy(graph, options, options[ALGORITHM]);
+    }
+
+    /**
+     * Creates the portfolio of algorithms, which each search with one thread
+     * unless the number of threads is given.
+     * @param graph to run the TSP algorithms on.
+     * @param options command line arguments, with the maximum run time
+     *                after the algorithm.
+     * @return portfolio to execute.
+     */
+    private static Portfolio createPortfolio(Graph graph, String[] options){
+
+        final int MAX_TIME = 2;
+
+        String[] timeValues = options[MAX_TIME].split("-");
+        Portfolio portfolio = new Portfolio(graph);
+
+        if(areTimeOptionsValid(timeValues)){
+            portfolio.setTimeLimit(maxTimeUnit(timeValues[0]),
+                    maxTime(timeValues[1]));
+        }
+
+        // Settings are found from the first given, so this is only a default
+        String[] strategyOptions = Arrays.copyOf(options, options.length + 1);
+        strategyOptions[options.length] = THREADS + "-1";
+
+        for(String strategy: PORTFOLIO_STRATEGIES){
+
+            TSP algorithm = createStrategy(graph, strategyOptions, strategy);
+
+            if(strategy.compareTo(TSP_ALGORITHMS[4]) == 0){
+
+                // Build this tour from the other side of the graph
+                ((NearestNeighbor) algorithm).setSource(graph.size() / 2);
+            }
+
+            portfolio.add(algorithm);
+        }
+
+        return portfolio;
+    }
+
+    /**
+     * Creates a single TSP algorithm with the maximum run time and optional
+     * settings of the command line arguments.
+     * @param graph to run the TSP algorithm on.
+     * @param options command line arguments, with the maximum run time
+     *                after the algorithm.
+     * @param algorithm name of the algorithm to create.
+     * @return TSP algorithm to execute.
+     */
+    private static TSP createStrategy(Graph graph, String[] options,
+                                      String algorithm){
+
+        final int MAX_TIME = 2;
+
+        String[] timeValues = options[MAX_TIME].split("-");
+
+        if(algorithm.compareTo(TSP_ALGORITHMS[8]) == 0){
+            return createGreedy(graph, options);
+        }
+
+        if(algorithm.compareTo(TSP_ALGORITHMS[11]) == 0){
+            return createHilbert(graph, options);
+        }
+
+        NearestNeighbor nn = new NearestNeighbor(graph);
+        nn.setThreads(setting(options, THREADS,
+                Runtime.getRuntime().availableProcessors()));
+
+        boolean[] algorithms = algorithmChoice(algorithm);
+
+        // Check if the maximum run time values are valid
+        if(areTimeOptionsValid(timeValues)){
+            nn.setAlgorithmOptions(algorithms[0], algorithms[1],
+                    maxTimeUnit(timeValues[0]), maxTime(timeValues[1]));
+        } else { // If not run without maximum run time
+            nn.setAlgorithmOptions(algorithms[0], algorithms[1]);
+        }
+
+        if(algorithms[2]){ // Limit 2-opt to near neighbors if selected
+            nn.setNeighborListSize(setting(options, NEIGHBORS, DEFAULT_NEIGHBORS));
+        }
+
+        // Add the Or-opt stage if selected
+        nn.setOrOptSegmentLength(setting(options, OR_OPT, 0));
+
+        // Abandon starts of the repetitive algorithms that cannot do better
+        nn.setPruneMargin(setting(options, PRUNE, -1));
+
+        if(algorithm.startsWith(TSP_ALGORITHMS[8])){
+
+            // Improve the greedy edge tour in place of the nearest neighbor
+            nn.setConstruction(createGreedy(graph, options));
+        } else if(algorithm.startsWith(TSP_ALGORITHMS[11])){
+
+            // Improve the Hilbert curve tour in place of the nearest neighbor
+            nn.setConstruction(createHilbert(graph, options));
+        }
+
+        if(algorithm.compareTo(TSP_ALGORITHMS[6]) == 0){
+
+            // Improve the nearest neighbor tour with Lin-Kernighan
+            LinKernighan lk = new LinKernighan(graph);
+            lk.setNeighborListSize(setting(options, NEIGHBORS, DEFAULT_NEIGHBORS));
+            lk.setConstruction(nn);
+
+            if(areTimeOptionsValid(timeValues)){
+                lk.setTimeLimit(maxTimeUnit(timeValues[0]), maxTime(timeValues[1]));
+            }
+
+            return lk;
+        }
+
+        return nn;
+    }
+
+    /**
+     * Creates the greedy edge construction with the maximum run time and
+     * number of near neighbors of the command line arguments.
+     * @param graph to run the TSP algorithm on.
+     * @param options command line arguments, with the maximum run time
+     *                after the algorithm.
+     * @return greedy edge algorithm to execute.
+     */
+    private static GreedyEdge createGreedy(Graph graph, String[] options){
+
+        final int MAX_TIME = 2;
+
+        String[] timeValues = options[MAX_TIME].split("-");
+        GreedyEdge greedy = new GreedyEdge(graph);
+        greedy.setNeighborListSize(setting(options, NEIGHBORS,
+                DEFAULT_NEIGHBORS));
+
+        if(areTimeOptionsValid(timeValues)){
+            greedy.setTimeLimit(maxTimeUnit(timeValues[0]),
+                    maxTime(timeValues[1]));
+        }
+
+        return greedy;
+    }
+
+    /**
+     * Creates the Hilbert curve construction with the maximum run time of
+     * the command line arguments.
+     * @param graph to run the TSP algorithm on.
+     * @param options command line arguments, with the maximum run time
+     *                after the algorithm.
+     * @return Hilbert curve algorithm to execute.
+     */
+    private static HilbertCurve createHilbert(Graph graph, String[] options){
+
+        final int MAX_TIME = 2;
+
+        String[] timeValues = options[MAX_TIME].split("-");
+        HilbertCurve hilbert = new HilbertCurve(graph);
+
+        if(areTimeOptionsValid(timeValues)){
+            hilbert.setTimeLimit(maxTimeUnit(timeValues[0]),
+                    maxTime(timeValues[1]));
+        }
+
+        return hilbert;
+    }
+
+    /**
+     * Returns the maximum run time selected by the command line arguments.
+     * @param options command line arguments, with the maximum run time after
+     *                the algorithm.
+     * @return maximum run time in milliseconds, or -1 if there is none.
+     */
+    static long maxRunTime(String[] options){
+
+        final int MAX_TIME = 2;
+
+        String[] timeValues = options[MAX_TIME].split("-");
+
+        if(!areTimeOptionsValid(timeValues)){
+            return -1;
+        }
+
+        long time = maxTime(timeValues[1]);
+
+        switch(maxTimeUnit(timeValues[0])){
+
+            case SECONDS:
+                return TimeUnit.SECONDS.toMillis(time);
+            case MINUTES:
+                return TimeUnit.MINUTES.toMillis(time);
+            default:
+                return TimeUnit.HOURS.toMillis(time);
+        }
+    }
+
+    /**
+     * Returns the optimal tour length given in the command line arguments.
+     * @param options command line arguments, with the optimal tour length
+     *                after the maximum run time.
+     * @return optimal tour length, or 0 if it is not given.
+     */
+    static long optimalTourLength(String[] options){
+
+        final int OPTIMAL = 3;
+
+        if(isOptimalTourLengthValid(options[OPTIMAL])){
+            return optimalTourLength(options[OPTIMAL]);
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the algorithm choices for the command line arguments.
+     * @return algorithm names in the order they were added.
+     */
+    public static String[] getAlgorithmNames(){
+
+        return TSP_ALGORITHMS.clone();
+    }
+
     /**
      * Checks if the optimal tour length is valid.
      * @param option to check for the optimal tour length
@@ -224,6 +569,7 @@ public class Main {
 
         boolean twoOptimal = false;
         boolean repetitive = false;
+        boolean neighborLists = false;
 
         if(option.compareTo(TSP_ALGORITHMS[1]) == 0){
             repetitive = true;
@@ -232,9 +578,79 @@ public class Main {
         } else if(option.compareTo(TSP_ALGORITHMS[3]) == 0){
             repetitive = true;
             twoOptimal = true;
+        } else if(option.compareTo(TSP_ALGORITHMS[4]) == 0){
+            twoOptimal = true;
+            neighborLists = true;
+        } else if(option.compareTo(TSP_ALGORITHMS[5]) == 0){
+            repetitive = true;
+            twoOptimal = true;
+            neighborLists = true;
+        } else if(option.compareTo(TSP_ALGORITHMS[9]) == 0){
+            twoOptimal = true;
+        } else if(option.compareTo(TSP_ALGORITHMS[10]) == 0){
+            twoOptimal = true;
+            neighborLists = true;
+        } else if(option.compareTo(TSP_ALGORITHMS[12]) == 0){
+            twoOptimal = true;
+        } else if(option.compareTo(TSP_ALGORITHMS[13]) == 0){
+            twoOptimal = true;
+            neighborLists = true;
+        }
+
+        return new boolean []{repetitive, twoOptimal, neighborLists};
+    }
+
+    /**
+     * Returns the value of an optional setting after the optimal tour length,
+     * given in the form NAME-integer, or the default value if the setting is
+     * not given or is not a valid integer.
+     * @param options in the command line arguments.
+     * @param name of the setting.
+     * @param defaultValue to use if the setting is not given.
+     * @return value of the setting.
+     */
+    private static int setting(String[] options, String name, int defaultValue){
+
+        final int FIRST_SETTING = 4;
+
+        for(int i = FIRST_SETTING; i < options.length; i++){
+
+            String[] setting = options[i].split("-");
+
+            if(setting.length == 2 && setting[0].compareTo(name) == 0){
+
+                try { // Check if number
+
+                    return Integer.parseInt(setting[1]);
+
+                } catch(NumberFormatException e) {
+                    System.out.println("\n# Invalid " + name.toLowerCase()
+                            + " setting, using " + defaultValue);
+                }
+            }
+        }
+
+        return defaultValue;
+    }
+
+    /**
+     * Checks if an optional flag is given after the optimal tour length.
+     * @param options in the command line arguments.
+     * @param name of the flag.
+     * @return true if the flag is given and false otherwise.
+     */
+    private static boolean hasFlag(String[] options, String name){
+
+        final int FIRST_SETTING = 4;
+
+        for(int i = FIRST_SETTING; i < options.length; i++){
+
+            if(options[i].compareTo(name) == 0){
+                return true;
+            }
         }
 
-        return new boolean []{repetitive, twoOptimal};
+        return false;
     }
 
     /**
@@ -294,20 +710,63 @@ public class Main {
 
 
     /**
-     * Checks if the user provided options to run in the command line.
+     * Checks if the user provided options to run in the command line. Every
+     * argument after the optimal tour length must be a known setting in the
+     * form NAME-integer or the RESUME flag.
      * @param options currently provided by the user.
      * @return true if the user provided options and false otherwise.
      */
     private static boolean hasOptionsToAdd(String[] options){
 
-        if(options.length != 4){
+        final int FIRST_SETTING = 4;
+
+        if(options.length < FIRST_SETTING){
 
             System.out.println("\n# Invalid options,running default configuration");
             return false;
         }
+
+        for(int i = FIRST_SETTING; i < options.length; i++){
+
+            if(!isSettingValid(options[i])){
+
+                System.out.println("\n# Invalid option " + options[i]
+                        + ",running default configuration");
+                return false;
+            }
+        }
         return true;
     }
 
+    /**
+     * Checks if an argument after the optimal tour length is a known setting
+     * with an integer value, or a known flag.
+     * @param option to check.
+     * @return true if the option is valid and false otherwise.
+     */
+    static boolean isSettingValid(String option){
+
+        if(option.compareTo(RESUME) == 0){
+            return true;
+        }
+
+        String[] setting = option.split("-");
+
+        if(setting.length != 2
+                || !Arrays.asList(SETTINGS).contains(setting[0])){
+            return false;
+        }
+
+        try { // Check if number
+
+            Integer.parseInt(setting[1]);
+            return true;
+
+        } catch(NumberFormatException e) {
+            return false;
+        }
+    }
+
     /**
      * Check is the given file name command line argument is a valid file.
      * @param fileName to check its validity
@@ -0,0 +1,42 @@
+import java.util.stream.IntStream;
+
+/**
+ * Distance oracle backed by a full matrix of every distance in the graph.
+ * Fastest to query, but uses memory proportional to the square of the graph
+ * size, so it is only used for small graphs.
+ */
+public class MatrixDistanceOracle extends DistanceOracle {
+
+    private final int[][] matrix;
+
+    /**
+     * Constructor. Computes the distance between every pair of vertices.
+     * @param xs x-coordinates of the vertices.
+     * @param ys y-coordinates of the vertices.
+     */
+    public MatrixDistanceOracle(int[] xs, int[] ys){
+
+        super(xs, ys);
+
+        matrix = new int[size][size];
+
+        // Each row is independent so they are filled in parallel
+        IntStream.range(0, size).parallel().forEach(i -> {
+            for(int j = 0; j < size; j++){
+                matrix[i][j] = (int) compute(i, j);
+            }
+        });
+    }
+
+    /**
+     * Returns the distance between the two vertices.
+     * @param i index of the first vertex.
+     * @param j index of the second vertex.
+     * @return edge weight between the vertices.
+     */
+    @Override
+    public long distance(int i, int j){
+
+        return matrix[i][j];
+    }
+}
@@ -1,4 +1,10 @@
 import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Nearest Neighbor TSP algorithm for the TSP. The algorithm includes three
@@ -10,8 +16,39 @@ import java.util.ArrayList;
  */
 public class NearestNeighbor extends TSP{
 
+    // Near neighbors searched by the Or-opt stage without a 2-opt list size
+    private static final int DEFAULT_NEIGHBOR_LIST_SIZE = 10;
+
+    // Steps of the innermost loops between checks of the time limit, less one
+    private static final int CHECK_MASK = 1023;
+
     private boolean repetitive;
     private boolean twoOptimal;
+    private int neighborListSize;
+    private int orOptSegmentLength;
+    private int threads;
+    private int source;
+    private int pruneMargin;
+    private boolean pruning;
+    private TSP construction;
+    private long[] firstDistances;
+    private long[] secondDistances;
+    private long boundTotal;
+
+    private BestTour best;
+    private boolean resumed;
+    private int[] startOrder;
+    private boolean[] searched;
+    private int nextUnsearched;
+    private volatile int startsCompleted;
+
+    private Checkpoint checkpoint;
+    private String outputFileName;
+    private long checkpointInterval;
+    private boolean resume;
+    private ScheduledExecutorService scheduler;
+    private Thread shutdownHook;
+    private volatile boolean checkpointDue;
 
     /**
      * Default Constructor. Sets the graph to run the TSP algorithm on and
@@ -24,6 +61,128 @@ public class NearestNeighbor extends TSP{
         this.algorithmName = "NN";
         this.repetitive = false;
         this.twoOptimal = false;
+        this.neighborListSize = 0;
+        this.orOptSegmentLength = 0;
+        this.threads = Runtime.getRuntime().availableProcessors();
+        this.source = -1;
+        this.pruneMargin = -1;
+        this.pruning = true;
+    }
+
+    /**
+     * Limits the 2-opt tour improvement to moves that join a vertex to one of
+     * its nearest neighbors, which makes each improvement pass close to
+     * linear instead of quadratic on large graphs.
+     * @param neighborListSize number of nearest neighbors to try for each
+     * vertex, or zero to try every pair of vertices.
+     */
+    public void setNeighborListSize(int neighborListSize){
+
+        this.neighborListSize = Math.max(0, neighborListSize);
+    }
+
+    /**
+     * Adds an Or-opt stage to the tour improvement, which moves segments of
+     * up to the given number of vertices to a better place in the tour. When
+     * 2-opt is also selected, the two take turns until neither can improve
+     * the tour.
+     * @param orOptSegmentLength longest segment to move, or zero for no
+     * Or-opt stage.
+     */
+    public void setOrOptSegmentLength(int orOptSegmentLength){
+
+        this.orOptSegmentLength = Math.max(0, orOptSegmentLength);
+    }
+
+    /**
+     * Sets the number of threads the repetitive algorithm searches the start
+     * vertices with.
+     * @param threads number of search threads, at least one.
+     */
+    public void setThreads(int threads){
+
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Lets the repetitive algorithm with tour improvement abandon a start
+     * whose tour cannot come within the given margin of the best tour, as
+     * its tour is being built. Without tour improvement a start is abandoned
+     * as soon as its tour cannot be shorter than the best tour, which never
+     * changes the result, so no margin is needed.
+     * @param pruneMargin percent above the best tour distance to abandon a
+     * start at, or a negative number to improve every start.
+     */
+    public void setPruneMargin(int pruneMargin){
+
+        this.pruneMargin = pruneMargin;
+    }
+
+    /**
+     * Turns the abandoning of starts of the repetitive algorithm on or off,
+     * so the tests can compare the result with the search of every start.
+     * @param pruning true to abandon starts, which is the default.
+     */
+    void setPruning(boolean pruning){
+
+        this.pruning = pruning;
+    }
+
+    /**
+     * Sets another algorithm to build the tour of the single search in place
+     * of the nearest neighbor algorithm, so its tour is improved by the
+     * selected tour improvement stages. The algorithm takes the name of the
+     * construction in place of NN.
+     * @param construction algorithm for the tour to improve.
+     */
+    public void setConstruction(TSP construction){
+
+        this.construction = construction;
+    }
+
+    /**
+     * Stops the run and the construction algorithm, if one is set.
+     */
+    @Override
+    public void stop(){
+
+        super.stop();
+
+        if(construction != null){
+            construction.stop();
+        }
+    }
+
+    /**
+     * Sets the start vertex of the single nearest neighbor search, in place
+     * of the source vertex of the graph, so several searches can share a
+     * graph and start from different vertices.
+     * @param source index of the vertex to start the tour from.
+     */
+    public void setSource(int source){
+
+        this.source = source;
+    }
+
+    /**
+     * Saves the progress of the run to a checkpoint file, named after the
+     * location file with the .checkpoint extension, so that a run that is
+     * stopped can be resumed. The checkpoint is saved at the given interval,
+     * when the time limit is reached, and when the program is stopped, which
+     * also writes the best tour so far to the tour file. It is deleted once
+     * the run finishes.
+     * @param fileName of the location file.
+     * @param checkpointInterval seconds between checkpoints, or zero to only
+     * save them when the run stops early.
+     * @param resume true to continue from the checkpoint of an earlier run.
+     */
+    public void setCheckpoint(String fileName, long checkpointInterval,
+                              boolean resume){
+
+        this.checkpoint = new Checkpoint(fileName + ".checkpoint");
+        this.outputFileName = fileName + ".tour";
+        this.checkpointInterval = checkpointInterval;
+        this.resume = resume;
     }
 
     /**
@@ -35,10 +194,6 @@ public class NearestNeighbor extends TSP{
 
         this.repetitive = repetitive;
         this.twoOptimal = twoOptimal;
-
-        // Set the title based on what algorithm options are chosen
-        if(repetitive){ algorithmName += "R"; }
-        if(twoOptimal){ algorithmName += "2OPT"; }
     }
 
     /**
@@ -49,15 +204,38 @@ public class NearestNeighbor extends TSP{
     public void setAlgorithmOptions(boolean repetitive, boolean twoOptimal,
                                     UnitOfTime unit, long limit){
 
-        this.unit = unit;
-        this.limit = limit;
-        this.hasTimeLimit = true;
+        setTimeLimit(unit, limit);
         this.repetitive = repetitive;
         this.twoOptimal = twoOptimal;
+    }
+
+    /**
+     * Returns the name of the algorithm, built from the options it runs
+     * with, so it does not depend on the order they were set in.
+     * @return algorithm name.
+     */
+    @Override
+    public String getAlgorithmName(){
+
+        StringBuilder name = new StringBuilder(construction == null
+                ? algorithmName : construction.getAlgorithmName());
 
         // Set the title based on what algorithm options are chosen
-        if(repetitive){ algorithmName += "R"; }
-        if(twoOptimal){ algorithmName += "2OPT"; }
+        if(repetitive){ name.append("R"); }
+        if(twoOptimal){ name.append("2OPT"); }
+        if(twoOptimal && neighborListSize > 0){ name.append("K"); }
+        if(orOptSegmentLength > 0){ name.append("+OROPT"); }
+
+        return name.toString();
+    }
+
+    /**
+     * Executes the Nearest Neighbor Algorithm with the given parameter options.
+     */
+    @Override
+    public void execute(){
+
+        executeNearestNeighbor();
     }
 
     /**
@@ -68,168 +246,1048 @@ public class NearestNeighbor extends TSP{
      */
     public void executeNearestNeighbor(){
 
-        timer.startTimer();
+        startRun();
 
-        ArrayList<Vertex> currentTour;
+        // Find the neighbor lists once before any tour is improved
+        if((twoOptimal || orOptSegmentLength > 0) && neighborListSize > 0){
+            graph.getNeighborLists(neighborListSize);
+        } else if(orOptSegmentLength > 0){
+            graph.getNeighborLists(DEFAULT_NEIGHBOR_LIST_SIZE);
+        }
+
+        firstDistances = null;
+
+        // Find the lower bound of the tours if starts can be abandoned
+        if(repetitive && pruning && (!improvesTours() || pruneMargin >= 0)){
+            findNeighborDistances();
+        }
+
+        // Share the best tour with the other algorithms of a portfolio
+        best = incumbent != null ? incumbent : new BestTour();
+        resumed = false;
+        startOrder = repetitive ? StartOrder.stratified(graph) : null;
+        searched = new boolean[graph.size()];
+        nextUnsearched = 0;
+        startsCompleted = 0;
+
+        if(resume){ // Continue from the checkpoint of an earlier run
+            resumeFromCheckpoint();
+        }
+
+        startCheckpoints();
+
+        try {
+
+            if(repetitive){ // Use repetitive nearest neighbor algorithm
+                executeRepetitive();
+            } else { // Use only nearest neighbor on source vertex
+                executeSingle();
+            }
+
+        } finally {
+            stopCheckpoints();
+        }
+
+        stopRun();
+    }
+
+    /**
+     * Conducts a nearest neighbor search from the source vertex, or picks up
+     * the tour from the checkpoint if the run was resumed, and improves the
+     * tour if selected.
+     */
+    private void executeSingle(){
+
+        int source = sourceIndex();
+        int[] currentTour;
         long currentDistance;
 
-        if(repetitive){ // Use repetitive nearest neighbor algorithm
+        if(resumed){ // Continue from the tour of the checkpoint
 
-            // Conduct a nearest neighbor search from each of the vertices
-            // as the source vertex.
-            for(Vertex vertex: graph.getAdjacencyList()){
+            currentTour = best.getTour().clone();
+            currentDistance = best.getDistance();
 
-                currentTour = nearestNeighbor(vertex);
-                currentDistance = calculateTotalDistance(currentTour);
+        } else if(construction != null){ // Use the tour of the construction
 
-                if(twoOptimal){ // Use 2-opt if option was selected
-                    currentTour = twoOptNeighborSwap(currentTour, currentDistance);
-                    currentDistance = calculateTotalDistance(currentTour);
-                }
+            currentTour = construct();
+            currentDistance = calculateTotalDistance(currentTour);
+            source = currentTour[0];
+            best.offer(currentTour, currentDistance, source);
 
-                // Save the current tour if its better than the last
-                if(currentDistance < distance){
+        } else {
 
-                    distance = currentDistance;
-                    tour = new ArrayList<Vertex>(currentTour);
-                    printSolution(vertex.getIdentifier(), algorithmName);
-                }
+            currentTour = new int[graph.size()];
+            RunEvents.Construction event = new RunEvents.Construction();
+            event.begin();
 
-                // Exits the algorithm with the best route given a specified time
-                if(timeLimitHasBeenReached()){
-                    return;
-                }
+            nearestNeighbor(source, graph.getSpatialIndex().copy(), currentTour,
+                    Long.MAX_VALUE);
+            currentDistance = calculateTotalDistance(currentTour);
+            record(Trace.CONSTRUCTION, source, currentDistance, 0, 0);
+            commit(event, source, currentDistance);
+            best.offer(currentTour, currentDistance, source);
+        }
+
+        if(improvesTours()){ // Use 2-opt or Or-opt if selected
+            currentDistance = improveTour(currentTour, currentDistance);
+            best.offer(currentTour, currentDistance, source);
+        }
+
+        if(!timeLimitHasBeenReached()){
+            markSearched(source);
+            nextUnsearched = graph.size();
+        }
+
+        tour = new ArrayTour(currentTour);
+        distance = currentDistance;
+
+        printSolution(graph.getIdentifier(source), getAlgorithmName());
+    }
+
+    /**
+     * Executes the construction algorithm within the time limit of this run.
+     * @return vertex indices of the tour of the construction.
+     */
+    private int[] construct(){
+
+        construction.setTrace(trace);
+        construction.setProgress(progress);
+
+        if(hasDeadline()){
+            construction.setDeadline(deadline);
+        }
+
+        construction.execute();
+        firstSolutionTime = construction.getFirstSolutionTime();
+
+        // The vertex indices, without creating a vertex for every city
+        return construction.tour.toArray();
+    }
+
+    /**
+     * Conducts a nearest neighbor search from each of the vertices as the
+     * source vertex. The searches are shared between the search threads on a
+     * fork-join pool, which each take the next start vertex that has not been
+     * searched until all the vertices are searched or the time limit is
+     * reached. The starts are taken in the order of {@link StartOrder}, so a
+     * run stopped by its time limit has covered the graph evenly.
+     */
+    private void executeRepetitive(){
+
+        final AtomicInteger nextStart = new AtomicInteger(nextUnsearched);
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        ArrayList<ForkJoinTask<?>> workers = new ArrayList<ForkJoinTask<?>>(threads);
+
+        try {
+
+            for(int i = 0; i < threads; i++){
+                workers.add(pool.submit(() -> searchStarts(nextStart)));
+            }
+
+            for(ForkJoinTask<?> worker: workers){
+                worker.join();
             }
 
-        } else { // Use only nearest neighbor on source vertex
+        } finally {
+            pool.shutdown();
+        }
+
+        if(best.getTour().length > 0){
+            tour = new ArrayTour(best.getTour());
+            distance = best.getDistance();
+        }
+    }
+
+    /**
+     * Searches start vertices until none are left or the time limit is
+     * reached, offering each tour to the shared best tour. All of the search
+     * state is kept by the calling thread.
+     * @param nextStart position of the next start vertex to search.
+     */
+    private void searchStarts(AtomicInteger nextStart){
+
+        KDTree unvisited = graph.getSpatialIndex().copy();
+        int[] currentTour = new int[graph.size()];
+        long currentDistance;
+        int position;
+
+        while(!timeLimitHasBeenReached()
+                && (position = nextStart.getAndIncrement()) < graph.size()){
+
+            int start = startOrder[position];
+
+            RunEvents.Construction event = new RunEvents.Construction();
+            event.begin();
+
+            if(!nearestNeighbor(start, unvisited, currentTour, pruneLimit())){
+
+                // The tour of this start cannot beat the best tour
+                if(!timeLimitHasBeenReached()){
+                    markSearched(position);
+                }
+                continue;
+            }
 
-            currentTour = nearestNeighbor(graph.getSource());
             currentDistance = calculateTotalDistance(currentTour);
+            record(Trace.CONSTRUCTION, start, currentDistance, 0, 0);
+            commit(event, start, currentDistance);
 
-            if(twoOptimal){ // Use 2-opt if option was selected
-                currentTour = twoOptNeighborSwap(currentTour, currentDistance);
-                currentDistance = calculateTotalDistance(currentTour);
+            if(improvesTours()){ // Use 2-opt or Or-opt if selected
+                currentDistance = improveTour(currentTour, currentDistance);
             }
 
-            tour = currentTour;
+            // A start cut short by the time limit is searched again on resume
+            if(!timeLimitHasBeenReached()){
+                markSearched(position);
+            }
+
+            // Save the current tour if its better than the last
+            if(best.offer(currentTour, currentDistance, start)){
+                printImprovement(graph.getIdentifier(start), currentDistance);
+            }
+        }
+    }
+
+    /**
+     * Prints an improved tour distance found by one of the search threads.
+     * Improvements can arrive out of order, so only those shorter than the
+     * last printed distance are printed.
+     * @param identifier for the source vertex of the tour.
+     * @param currentDistance of the improved tour.
+     */
+    private synchronized void printImprovement(int identifier, long currentDistance){
+
+        if(currentDistance < distance){
             distance = currentDistance;
+            printSolution(identifier, getAlgorithmName());
+        }
+    }
+
+    /**
+     * Records that the search from a start vertex has finished. Starts finish
+     * out of order, so the next unsearched start is the lowest position in
+     * the start order that has not finished.
+     * @param start position of the start vertex in the start order.
+     */
+    private synchronized void markSearched(int start){
 
-            printSolution(graph.getSource().getIdentifier(),
-                    algorithmName);
+        if(!searched[start]){
+            searched[start] = true;
+            startsCompleted++;
         }
 
-        timer.stopTimer();
+        while(nextUnsearched < searched.length && searched[nextUnsearched]){
+            nextUnsearched++;
+        }
     }
 
     /**
-     * Runs the nearest neighbor algorithm given a source vertex.
-     * @return algorithm's solution to the TSP.
+     * Loads the checkpoint and continues from it if it was made by the same
+     * algorithm on a graph of the same size, otherwise starts over.
      */
-    private ArrayList<Vertex> nearestNeighbor(Vertex source){
+    private void resumeFromCheckpoint(){
+
+        if(checkpoint == null || !checkpoint.load()){
+            System.out.println("\n# No checkpoint to resume from, starting over.");
+            return;
+        }
 
-        ArrayList<Vertex> tour = new ArrayList<Vertex>(graph.size());
+        if(checkpoint.getAlgorithmName().compareTo(getAlgorithmName()) != 0
+                || !isTour(checkpoint.getTour())){
+            System.out.println("\n# Checkpoint " + checkpoint.getFileName()
+                    + " is from a different run, starting over.");
+            return;
+        }
 
-        if(graph.size() > 1){   // Base Case
+        best.offer(checkpoint.getTour(), checkpoint.getDistance(),
+                checkpoint.getStart());
+        distance = checkpoint.getDistance();
+        resumed = true;
+
+        for(int i = 0; i < Math.min(checkpoint.getNextStart(), searched.length); i++){
+            markSearched(i);
+        }
+
+        System.out.println("\n# Resuming from " + checkpoint.getFileName()
+                + " at start " + nextUnsearched + " with distance " + distance);
+    }
+
+    /**
+     * Returns the start vertex of the single nearest neighbor search.
+     * @return index of the start vertex.
+     */
+    private int sourceIndex(){
+
+        return source >= 0 ? source : graph.getSourceIndex();
+    }
+
+    /**
+     * Checks if the vertex indices visit every vertex in the graph once.
+     * @param vertices indices to check.
+     * @return true if the indices are a tour of the graph and false otherwise.
+     */
+    private boolean isTour(int[] vertices){
+
+        boolean[] visited = new boolean[graph.size()];
+
+        if(vertices.length != visited.length){
+            return false;
+        }
+
+        for(int vertex: vertices){
+
+            if(vertex < 0 || vertex >= visited.length || visited[vertex]){
+                return false;
+            }
+            visited[vertex] = true;
+        }
+
+        return true;
+    }
+
+    /**
+     * Starts saving checkpoints at the checkpoint interval, and saving the
+     * best tour when the program is stopped before the run finishes.
+     */
+    private void startCheckpoints(){
+
+        if(checkpoint == null){
+            return;
+        }
+
+        shutdownHook = new Thread(this::saveOnShutdown);
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+
+        if(checkpointInterval <= 0){
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // The single search keeps its tour to itself, so it is asked to save
+        // its progress, while the repetitive search saves its best tour
+        scheduler.scheduleAtFixedRate(() -> {
+            if(repetitive){
+                saveCheckpoint();
+            } else {
+                checkpointDue = true;
+            }
+        }, checkpointInterval, checkpointInterval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops saving checkpoints. The checkpoint is deleted if every start was
+     * searched, and otherwise saved so that the run can be resumed.
+     */
+    private void stopCheckpoints(){
+
+        if(checkpoint == null){
+            return;
+        }
+
+        if(scheduler != null){
+            scheduler.shutdownNow();
+        }
+
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch(IllegalStateException e){
+            return; // Already shutting down, so the hook saves the run
+        }
+
+        if(nextUnsearched == graph.size()){
+            checkpoint.delete();
+        } else {
+            saveCheckpoint();
+        }
+    }
+
+    /**
+     * Saves the best tour so far and the next unsearched start as the
+     * checkpoint. The next unsearched start is read first, so the best tour
+     * read after it includes the tours of every start before it.
+     */
+    private synchronized void saveCheckpoint(){
+
+        int next = nextUnsearched;
+        BestTour.Solution solution = best.getSolution();
+
+        if(solution.getTour().length > 0){
+            checkpoint.save(getAlgorithmName(), solution.getTour(),
+                    solution.getDistance(), solution.getStart(), next);
+        }
+    }
+
+    /**
+     * Saves the progress of the single search if a checkpoint is due.
+     * @param current tour being improved.
+     * @param currentDistance of the tour.
+     */
+    private void saveProgress(Tour current, long currentDistance){
+
+        if(checkpointDue){
+
+            checkpointDue = false;
+            best.offer(current.toArray(), currentDistance, sourceIndex());
+            saveCheckpoint();
+        }
+    }
+
+    /**
+     * Saves the checkpoint and writes the best tour so far to the tour file
+     * when the program is stopped before the run finishes. The search
+     * threads may still be running, so the tour is written from a snapshot
+     * of the best tour and the tour of the run is left to them.
+     */
+    private void saveOnShutdown(){
+
+        BestTour.Solution solution = best.getSolution();
+
+        if(solution.getTour().length == 0){
+            return;
+        }
+
+        saveCheckpoint();
 
-            // Reset the discovery values for all the vertices
-            graph.resetAllDiscoveryValues(0);
+        FileOutputProcessor file = new FileOutputProcessor(outputFileName);
+        file.setup();
+        file.writeDistanceToFile(solution.getDistance());
+        file.writePathToFile(graph.getVertices(solution.getTour()));
+        file.teardown();
 
-            // Add the source to the path and set discovery values
-            source.setColor(Color.BLACK);
-            tour.add(source);
+        System.out.println("\nStopped, best distance "
+                + solution.getDistance() + " saved to " + outputFileName
+                + " and " + checkpoint.getFileName());
+    }
+
+    /**
+     * Runs the nearest neighbor algorithm given a source vertex. The nearest
+     * unvisited vertex is found through a spatial index, with the visited
+     * vertices removed from it as the tour grows. If the time limit is
+     * reached first, the unvisited vertices are added in order so there is
+     * still a tour to return.
+     *
+     * While the tour grows, the rest of the tour needs two edges at each
+     * unvisited vertex and one at each end of the path, each at least as
+     * long as the distance to the nearest or second nearest neighbor of the
+     * vertex. Half the sum of those distances plus the length of the path is
+     * a lower bound on the finished tour, kept doubled to stay in integers,
+     * and the tour is abandoned once it passes the given limit.
+     * @param source index of the vertex to start the tour from.
+     * @param unvisited spatial index owned by the calling thread.
+     * @param tour to fill with the vertex indices of the algorithm's
+     * solution to the TSP.
+     * @param limit tour distance to abandon the tour above, or
+     * Long.MAX_VALUE to always finish it.
+     * @return true if the tour was finished and false if it was abandoned.
+     */
+    private boolean nearestNeighbor(int source, KDTree unvisited, int[] tour,
+                                    long limit){
+
+        DistanceOracle distances = graph.getDistanceOracle();
+        boolean pruning = limit != Long.MAX_VALUE;
+        long bound = pruning ? boundTotal - secondDistances[source]
+                + firstDistances[source] : 0;
+        long doubleLimit = limit > Long.MAX_VALUE / 2
+                ? Long.MAX_VALUE : 2 * limit;
+
+        if(graph.size() > 1){   // Base Case
 
-            Vertex u;
-            Vertex v;
+            // Reset the unvisited vertices to the whole graph
+            unvisited.reset();
+
+            // Add the source to the path and mark it as visited
+            unvisited.remove(source);
+            tour[0] = source;
 
             // Continue to the next vertex, with the shortest distance while
             // there are still vertices that are not visited
-            while(tour.size() < graph.size()){
+            for(int i = 1; i < tour.length; i++){
+
+                // Add the vertex to the path and mark it as visited
+                tour[i] = unvisited.nearest(tour[i - 1]);
+                unvisited.remove(tour[i]);
+
+                if(pruning){
+
+                    // The new edge replaces the shares of the bound it meets
+                    bound += 2 * distances.distance(tour[i - 1], tour[i])
+                            - secondDistances[tour[i]]
+                            - firstDistances[tour[i - 1]];
+
+                    if(bound > doubleLimit){
+                        return false;
+                    }
+                }
+
+                if((i & CHECK_MASK) == 0 && timeLimitHasBeenReached()){
+                    completeTour(tour, i + 1);
+                    return true;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the tour distance a start of the repetitive algorithm is
+     * abandoned above, from the best tour so far and the prune margin.
+     * @return tour distance limit, or Long.MAX_VALUE if starts are not
+     * abandoned.
+     */
+    private long pruneLimit(){
+
+        long limit = best.getDistance();
+
+        if(firstDistances == null || limit == Long.MAX_VALUE){
+            return Long.MAX_VALUE;
+        }
+
+        if(improvesTours()){ // Improvement can recover a longer tour
+            limit += limit / 100 * pruneMargin;
+        }
+
+        return limit;
+    }
+
+    /**
+     * Finds the distances from every vertex to its nearest and second nearest
+     * neighbors, and the total of both over every vertex, which is twice a
+     * lower bound on the distance of any tour.
+     */
+    private void findNeighborDistances(){
+
+        DistanceOracle distances = graph.getDistanceOracle();
+        int n = graph.size();
+
+        // Use the neighbor lists of the tour improvement if they are kept
+        NeighborLists neighbors = neighborListSize > 1 && improvesTours()
+                ? graph.getNeighborLists(neighborListSize)
+                : new NeighborLists(graph.getSpatialIndex(), n, 2);
+
+        firstDistances = new long[n];
+        secondDistances = new long[n];
+        boundTotal = 0;
+
+        for(int v = 0; v < n && neighbors.size() > 0; v++){
+
+            firstDistances[v] = distances.distance(v, neighbors.get(v, 0));
 
-                // Add the vertex to the path
-                u = tour.get(tour.size() - 1);
-                v = graph.getMinimumEdge(u);
-                tour.add(v);
+            // With two vertices the one neighbor is used twice
+            secondDistances[v] = neighbors.size() > 1
+                    ? distances.distance(v, neighbors.get(v, 1))
+                    : firstDistances[v];
 
-                // Mark vertices as visited
-                v.setColor(Color.BLACK);
-                u.setColor(Color.BLACK);
+            boundTotal += firstDistances[v] + secondDistances[v];
+        }
+    }
+
+    /**
+     * Completes a partly built tour with the vertices it does not visit yet,
+     * in the order of their indices.
+     * @param tour of vertex indices to complete.
+     * @param length of the tour built so far.
+     */
+    private void completeTour(int[] tour, int length){
+
+        boolean[] visited = new boolean[tour.length];
+
+        for(int i = 0; i < length; i++){
+            visited[tour[i]] = true;
+        }
+
+        for(int v = 0; v < tour.length; v++){
+
+            if(!visited[v]){
+                tour[length++] = v;
             }
         }
+    }
+
+    /**
+     * Checks if any tour improvement stage is selected.
+     * @return true if the tours are improved after they are built.
+     */
+    private boolean improvesTours(){
+
+        return twoOptimal || orOptSegmentLength > 0;
+    }
+
+    /**
+     * Improves a given tour with the selected tour improvement stages, without
+     * building a tour first. Used by the benchmarks of the improvement.
+     * @param tour of vertex indices to improve in place.
+     * @return total distance of the improved tour.
+     */
+    long improveTour(int[] tour){
+
+        long distance = calculateTotalDistance(tour);
+
+        if(improvesTours()){
+            distance = improveTour(tour, distance);
+        }
 
-        return tour;
+        return distance;
+    }
+
+    /**
+     * Improves the tour with the selected tour improvement stages. With both
+     * 2-opt and Or-opt selected this is a variable neighborhood descent,
+     * which goes back to 2-opt whenever Or-opt improves the tour.
+     * @param tour of vertex indices to improve in place.
+     * @param distance of the tour before any improvement.
+     * @return total distance of the improved tour.
+     */
+    private long improveTour(int[] tour, long distance){
+
+        RunEvents.Improvement event = new RunEvents.Improvement();
+        event.begin();
+
+        Tour current = Tour.create(tour);
+        long initial = distance;
+        long before;
+
+        do {
+
+            if(twoOptimal && neighborListSize > 0){
+                distance = twoOptNeighborListSwap(current, tour[0], distance);
+            } else if(twoOptimal){
+                distance = twoOptNeighborSwap(current, tour[0], distance);
+            }
+
+            if(orOptSegmentLength == 0){
+                break;
+            }
+
+            before = distance;
+            distance = orOptSegmentMove(current, tour[0], distance);
+
+        } while(twoOptimal && distance < before && !timeLimitHasBeenReached());
+
+        // Start the tour from the same vertex it started from before
+        System.arraycopy(current.toArray(), 0, tour, 0, tour.length);
+
+        if(event.shouldCommit()){
+            event.algorithm = getAlgorithmName();
+            event.start = graph.getIdentifier(tour[0]);
+            event.initialLength = initial;
+            event.finalLength = distance;
+            event.commit();
+        }
+
+        return distance;
     }
 
     /**
      * 2-Opt tour improvement algorithm. Improves the current tour by
-     * swapping edges (pairs of vertices) that improve the total distance.
+     * reversing the segment between two edges (pairs of vertices) whenever
+     * it improves the total distance. Each candidate move is scored from the
+     * four edges it affects and the tour is only changed when a move is
+     * accepted.
+     * @param tour to improve in place.
+     * @param first vertex of the tour, where each pass starts.
+     * @param distance of the tour before any improvement.
+     * @return total distance of the improved tour.
      */
-    private ArrayList<Vertex> twoOptNeighborSwap(ArrayList<Vertex> tour, long distance){
+    private long twoOptNeighborSwap(Tour tour, int first, long distance){
+
+        DistanceOracle distances = graph.getDistanceOracle();
+        boolean improved = true;
+        int n = tour.size();
 
-        int improve = 0;
+        // A move can leave the tour running the other way, so the passes
+        // walk it in the direction it was first read in
+        int direction = 1;
 
-        ArrayList<Vertex> newTour = new ArrayList<Vertex>(tour);
-        long newTourDistance;
+        int a, b, c, d;
+        long delta;
+        long evaluated = 0;
+        long applied = 0;
+        int steps = 0;
 
         // Continually improve until no improvements can be made
-        while(improve < 2){
+        while(improved){
+
+            improved = false;
+            a = first;
 
             // Iterate through for every valid point swap
-            for(int i = 1; i < tour.size() - 1; i++){
+            for(int i = 1; i < n - 1; i++){
+
+                c = neighbor(tour, neighbor(tour, a, direction), direction);
 
-                for(int j = i + 1; j < tour.size(); j++){
+                for(int j = i + 1; j < n; j++){
 
-                    swap(tour, newTour, i, j); // Swap edges
+                    // Edges (a, b) and (c, d) are replaced by (a, c) and (b, d)
+                    b = neighbor(tour, a, direction);
+                    d = neighbor(tour, c, direction);
 
-                    newTourDistance = calculateTotalDistance(newTour);
+                    delta = distances.distance(a, c) + distances.distance(b, d)
+                            - distances.distance(a, b) - distances.distance(c, d);
+                    evaluated++;
 
                     // Keep the route changes if they are better after the swap
-                    if(newTourDistance < distance){
+                    if(delta < 0){
+
+                        tour.flip(a, b, c, d);
+                        distance += delta;
+                        improved = true;
+                        applied++;
 
-                        tour = new ArrayList<Vertex>(newTour);
-                        distance = newTourDistance;
-                        improve = 0;
+                        if(neighbor(tour, a, direction) != c){
+                            direction = -direction;
+                        }
+
+                        // The reversed segment now ends with b, before d
+                        c = b;
                     }
 
                     // Maximum time limit exit if reached
-                    if(timeLimitHasBeenReached()){
-                        return tour;
+                    if((++steps & CHECK_MASK) == 0){
+
+                        if(timeLimitHasBeenReached()){
+                            movesEvaluated.add(evaluated);
+                            record(Trace.TWO_OPT, first, distance, evaluated,
+                                    applied);
+                            return distance;
+                        }
+
+                        saveProgress(tour, distance);
+                    }
+
+                    c = neighbor(tour, c, direction);
+                }
+
+                a = neighbor(tour, a, direction);
+            }
+
+            // Record each pass through the tour
+            movesEvaluated.add(evaluated);
+            record(Trace.TWO_OPT, first, distance, evaluated, applied);
+            evaluated = 0;
+            applied = 0;
+        }
+
+        return distance;
+    }
+
+    /**
+     * 2-Opt tour improvement limited to moves that join a vertex to one of
+     * its nearest neighbors. Vertices wait in a queue to be searched from,
+     * and a vertex whose search finds no improvement is not searched again
+     * until a move changes one of its tour neighbors, which puts it back in
+     * the queue. After the first pass, the work is proportional to the
+     * vertices whose surroundings in the tour have changed.
+     * @param tour to improve in place.
+     * @param first vertex of the tour, which the tour is traced by.
+     * @param distance of the tour before any improvement.
+     * @return total distance of the improved tour.
+     */
+    private long twoOptNeighborListSwap(Tour tour, int first, long distance){
+
+        DistanceOracle distances = graph.getDistanceOracle();
+        NeighborLists neighbors = graph.getNeighborLists(neighborListSize);
+        WorkQueue queue = new WorkQueue(tour.toArray());
+
+        int a, b, c, d;
+        long ab, ac, delta;
+        long evaluated = 0;
+        long applied = 0;
+        int searched = 0;
+
+        while(!queue.isEmpty() && !timeLimitHasBeenReached()){
+
+            saveProgress(tour, distance);
+            a = queue.poll();
+
+            // Record each time as many vertices as the tour has are searched
+            if(++searched == tour.size()){
+                movesEvaluated.add(evaluated);
+                record(Trace.TWO_OPT, first, distance, evaluated, applied);
+                evaluated = 0;
+                applied = 0;
+                searched = 0;
+            }
+
+            // Try replacing the edge to the vertex after a, then the edge to
+            // the vertex before a, with an edge from a to a near neighbor c
+            search:
+            for(int direction = 1; direction >= -1; direction -= 2){
+
+                b = neighbor(tour, a, direction);
+                ab = distances.distance(a, b);
+
+                for(int rank = 0; rank < neighbors.size(); rank++){
+
+                    c = neighbors.get(a, rank);
+                    ac = distances.distance(a, c);
+
+                    // Neighbors are sorted so no farther one can improve
+                    if(ac >= ab){
+                        break;
+                    }
+
+                    // Edges (a, b) and (c, d) are replaced by (a, c) and (b, d)
+                    d = neighbor(tour, c, direction);
+                    delta = ac + distances.distance(b, d)
+                            - ab - distances.distance(c, d);
+                    evaluated++;
+
+                    if(delta < 0){
+
+                        tour.flip(a, b, c, d);
+                        distance += delta;
+                        applied++;
+
+                        // Search again from every vertex the move touched
+                        queue.offer(a, b, c, d);
+                        break search;
                     }
                 }
             }
+        }
+
+        movesEvaluated.add(evaluated);
+        record(Trace.TWO_OPT, first, distance, evaluated, applied);
+
+        return distance;
+    }
+
+    /**
+     * Or-opt tour improvement. Moves a segment of one up to the Or-opt
+     * segment length vertices to between two other adjacent vertices, in
+     * either orientation, whenever it shortens the tour. A segment is only
+     * moved next to a near neighbor of one of its ends, and the vertices are
+     * searched from a queue in the same way as the neighbor list 2-opt.
+     * @param tour to improve in place.
+     * @param first vertex of the tour, which the tour is traced by.
+     * @param distance of the tour before any improvement.
+     * @return total distance of the improved tour.
+     */
+    private long orOptSegmentMove(Tour tour, int first, long distance){
+
+        DistanceOracle distances = graph.getDistanceOracle();
+        NeighborLists neighbors = graph.getNeighborLists(neighborListSize > 0
+                ? neighborListSize : DEFAULT_NEIGHBOR_LIST_SIZE);
+
+        int n = tour.size();
+        WorkQueue queue = new WorkQueue(tour.toArray());
+
+        int a, end, before, after, other, c, e, u, w;
+        long removed, delta;
+        long evaluated = 0;
+        long applied = 0;
+        int searched = 0;
+
+        while(!queue.isEmpty() && !timeLimitHasBeenReached()){
+
+            saveProgress(tour, distance);
+            a = queue.poll();
+
+            // Record each time as many vertices as the tour has are searched
+            if(++searched == n){
+                movesEvaluated.add(evaluated);
+                record(Trace.OR_OPT, first, distance, evaluated, applied);
+                evaluated = 0;
+                applied = 0;
+                searched = 0;
+            }
+
+            // Segments start at a and run forward or backward through the tour
+            search:
+            for(int direction = 1; direction >= -1; direction -= 2){
+
+                end = a;
+
+                for(int length = 1; length <= orOptSegmentLength
+                        && length + 3 <= n; length++){
+
+                    if(length > 1){
+                        end = neighbor(tour, end, direction);
+                    }
+
+                    before = neighbor(tour, a, -direction);
+                    after = neighbor(tour, end, direction);
+
+                    // Length saved by taking the segment out of the tour
+                    removed = distances.distance(before, a)
+                            + distances.distance(end, after)
+                            - distances.distance(before, after);
+
+                    if(removed <= 0){
+                        continue;
+                    }
+
+                    // Join either end of the segment to a near neighbor c,
+                    // using either of the tour edges (c, e) at c
+                    for(int side = 0; side < 2; side++){
 
-            improve ++;
+                        int near = side == 0 ? a : end;
+                        other = side == 0 ? end : a;
+
+                        for(int rank = 0; rank < neighbors.size(); rank++){
+
+                            c = neighbors.get(near, rank);
+
+                            if(distances.distance(near, c) >= removed){
+                                break;
+                            }
+
+                            if(inSegment(tour, a, end, direction, c)){
+                                continue;
+                            }
+
+                            for(int step = 1; step >= -1; step -= 2){
+
+                                e = neighbor(tour, c, step);
+
+                                if(inSegment(tour, a, end, direction, e)){
+                                    continue;
+                                }
+
+                                delta = distances.distance(c, near)
+                                        + distances.distance(other, e)
+                                        - distances.distance(c, e) - removed;
+                                evaluated++;
+
+                                if(delta < 0){
+
+                                    // The edge (u, w) runs forward through the
+                                    // tour, with the segment placed between
+                                    u = step == 1 ? c : e;
+                                    w = step == 1 ? e : c;
+
+                                    moveSegment(tour, a, end, direction, u, w,
+                                            step == 1 ? near : other);
+                                    distance += delta;
+                                    applied++;
+
+                                    // Search again from every vertex the move touched
+                                    queue.offer(a, end, before, after);
+                                    queue.offer(u, w);
+                                    break search;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
         }
 
-        return tour;
+        movesEvaluated.add(evaluated);
+        record(Trace.OR_OPT, first, distance, evaluated, applied);
+
+        return distance;
     }
 
     /**
-     * Swaps the two edges (pair of vertices) in the tour
-     * @param tour that current stands as the best tour
-     * @param newTour that will have the edges swapped
-     * @param i index for the tour swap vertex
-     * @param j index for the tour swap vertex
+     * Checks if a vertex is in the segment that runs from the start vertex to
+     * the end vertex in the given direction through the tour.
+     * @param tour holding the segment.
+     * @param start of the segment.
+     * @param end of the segment.
+     * @param direction the segment runs in, 1 forward or -1 backward.
+     * @param vertex to check.
+     * @return true if the vertex is in the segment and false otherwise.
      */
-    private void swap(ArrayList<Vertex> tour, ArrayList<Vertex> newTour, int i, int j){
+    private boolean inSegment(Tour tour, int start, int end, int direction,
+                              int vertex){
 
-        // Copy lower tour portion before the edge swap
-        for(int v = 0; v <= i - 1; v++){
-            newTour.set(v, tour.get(v));
+        if(direction == 1){
+            return tour.between(start, vertex, end);
         }
+        return tour.between(end, vertex, start);
+    }
 
-        // Swap the edges
-        int decrement = 0;
-        for(int v = i; v <= j; v++){
-            newTour.set(v, tour.get(j - decrement));
-            decrement++;
+    /**
+     * Moves a segment of the tour to between two adjacent vertices u and w,
+     * with w after u, through a sequence of 2-opt moves. The segment runs from
+     * the start vertex to the end vertex in the given direction, and the
+     * given end of the segment is placed next to u.
+     * @param tour that will have the segment moved
+     * @param start vertex of the segment.
+     * @param end vertex of the segment.
+     * @param direction the segment runs in, 1 forward or -1 backward.
+     * @param u vertex to place the segment after.
+     * @param w vertex to place the segment before.
+     * @param nextToU end of the segment to place next to u.
+     */
+    private void moveSegment(Tour tour, int start, int end, int direction,
+                             int u, int w, int nextToU){
+
+        // Name the segment ends and their outside neighbors in tour order
+        int first = direction == 1 ? start : end;
+        int last = direction == 1 ? end : start;
+        int before = tour.prev(first);
+        int after = tour.next(last);
+
+        // Connect the segment to w, reversed, and close the gap
+        // between the vertices on either side of it
+        tour.flip(before, first, u, w);
+
+        if(u != after){
+            tour.flip(before, u, after, last);
         }
 
-        // Copy upper tour portion after the edge swap
-        for(int v = j + 1; v < tour.size(); v++){
-            newTour.set(v, tour.get(v));
+        // The last vertex is now next to u, so flip the segment if the first
+        // one should be
+        if(nextToU == first && first != last){
+            tour.flip(u, last, first, w);
         }
     }
 
+    /**
+     * Commits a flight recorder event for a tour built from a start vertex,
+     * if the event is being recorded.
+     * @param event started before the tour was built.
+     * @param start vertex index of the tour.
+     * @param distance of the tour.
+     */
+    private void commit(RunEvents.Construction event, int start, long distance){
+
+        if(event.shouldCommit()){
+            event.start = graph.getIdentifier(start);
+            event.length = distance;
+            event.commit();
+        }
+    }
+
+    /**
+     * Records the progress of the tour from a start vertex to the trace, if
+     * there is one.
+     * @param phase of the run.
+     * @param start vertex index of the tour.
+     * @param distance of the tour.
+     * @param evaluated moves evaluated since the last record.
+     * @param applied moves applied since the last record.
+     */
+    private void record(String phase, int start, long distance, long evaluated,
+                        long applied){
+
+        if(trace != null){
+            trace.record(phase, graph.getIdentifier(start), distance,
+                    evaluated, applied);
+        }
+    }
+
+    /**
+     * Returns the vertex after or before a vertex in the tour.
+     * @param tour holding the vertex.
+     * @param vertex in the tour.
+     * @param direction 1 for the vertex after and -1 for the vertex before.
+     * @return neighboring vertex in the tour.
+     */
+    private int neighbor(Tour tour, int vertex, int direction){
+
+        return direction == 1 ? tour.next(vertex) : tour.prev(vertex);
+    }
+
     /**
      * Calculates the total tour distance.
      * @param tour in order of travel.
@@ -241,28 +1299,48 @@ public class NearestNeighbor extends TSP{
 
         // Calculates the distance between all the adjacent cities in the tour
         for(int i = 1; i < tour.size(); i++){
-            distance += tour.get(i - 1).getPoint().distance(tour.get(i).getPoint());
+            distance += graph.distance(tour.get(i - 1), tour.get(i));
         }
 
         // Add the return route to the distance
-        distance += tour.get(0).getPoint().distance(tour.get(tour.size() - 1).getPoint());
+        distance += graph.distance(tour.get(0), tour.get(tour.size() - 1));
 
         return distance;
     }
 
+    /**
+     * Returns the number of start vertices whose search has finished.
+     * @return starts completed.
+     */
+    @Override
+    public long getStartsCompleted(){
+        return startsCompleted;
+    }
+
+    /**
+     * Returns the number of start vertices the algorithm searches, which is
+     * every vertex for the repetitive algorithm.
+     * @return starts to search.
+     */
+    @Override
+    public long getStarts(){
+        return repetitive ? graph.size() : 1;
+    }
+
     /**
      * Prints the algorithm details to the console.
      */
+    @Override
     public void printAlgorithmDetails(){
 
-        System.out.println("\nAlgorithm: " + algorithmName);
+        super.printAlgorithmDetails();
 
-        if(hasTimeLimit){
-            System.out.println("Max run time: "
-                    + limit + " "
-                    + unit.toString().toLowerCase());
-        } else {
-            System.out.println("Max run time: NONE");
+        if(twoOptimal && neighborListSize > 0){
+            System.out.println("Neighbor list size: " + neighborListSize);
+        }
+
+        if(repetitive){
+            System.out.println("Search threads: " + threads);
         }
     }
 }
@@ -0,0 +1,85 @@
+import java.nio.IntBuffer;
+import java.util.stream.IntStream;
+
+/**
+ * Candidate lists of the nearest vertices to each vertex in a graph, used to
+ * limit the tour improvements to moves that connect a vertex to one of its
+ * near neighbors. The lists are stored back to back in a single array, with
+ * each list ordered from the nearest vertex to the farthest.
+ */
+public class NeighborLists {
+
+    private final int[] neighbors;
+    private final int size;
+
+    /**
+     * Constructor. Finds the nearest vertices to every vertex through the
+     * spatial index, breaking ties between equal distances by the lowest
+     * vertex index.
+     * @param spatialIndex over the vertices of the graph.
+     * @param vertices number of vertices in the graph.
+     * @param size number of neighbors to keep for each vertex.
+     */
+    public NeighborLists(KDTree spatialIndex, int vertices, int size){
+
+        this.size = Math.max(0, Math.min(size, vertices - 1));
+        this.neighbors = new int[vertices * this.size];
+
+        // Each thread searches with its own copy of the spatial index
+        ThreadLocal<KDTree> trees = ThreadLocal.withInitial(spatialIndex::copy);
+
+        IntStream.range(0, vertices).parallel().forEach(vertex -> {
+
+            KDTree tree = trees.get();
+            tree.reset();
+            tree.remove(vertex);
+
+            for(int rank = 0; rank < this.size; rank++){
+                neighbors[vertex * this.size + rank] = tree.nearest(vertex);
+                tree.remove(neighbors[vertex * this.size + rank]);
+            }
+        });
+    }
+
+    /**
+     * Constructor. Reads neighbor lists that were found before, stored back
+     * to back in the same layout as {@link #writeTo(IntBuffer)} writes them.
+     * @param buffer to read the lists from.
+     * @param vertices number of vertices in the graph.
+     * @param size number of neighbors kept for each vertex.
+     */
+    public NeighborLists(IntBuffer buffer, int vertices, int size){
+
+        this.size = size;
+        this.neighbors = new int[vertices * size];
+
+        buffer.get(neighbors);
+    }
+
+    /**
+     * Writes the neighbor lists back to back to a buffer.
+     * @param buffer to write the lists to.
+     */
+    public void writeTo(IntBuffer buffer){
+
+        buffer.put(neighbors);
+    }
+
+    /**
+     * Returns the number of neighbors kept for each vertex.
+     * @return neighbor list size.
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Returns a neighbor of a vertex by how near it is to the vertex.
+     * @param vertex index of the vertex.
+     * @param rank of the neighbor, zero being the nearest.
+     * @return index of the neighbor.
+     */
+    public int get(int vertex, int rank){
+        return neighbors[vertex * size + rank];
+    }
+}
@@ -41,10 +41,24 @@ public class Point {
      */
     public long distance(Point point) {
 
-        long x = (long) Math.pow(this.x - point.getX(), 2);
-        long y = (long) Math.pow(this.y - point.getY(), 2);
+        return distance(x, y, point.getX(), point.getY());
+    }
+
+    /**
+     * Returns the edge weight between two pairs of coordinates, rounded to
+     * the nearest integer.
+     * @param x1 x coordinate of the first point.
+     * @param y1 y coordinate of the first point.
+     * @param x2 x coordinate of the second point.
+     * @param y2 y coordinate of the second point.
+     * @return edge weight
+     */
+    public static long distance(int x1, int y1, int x2, int y2) {
+
+        long x = x1 - x2;
+        long y = y1 - y2;
 
-        return Math.round(Math.sqrt(x + y));
+        return Math.round(Math.sqrt(x * x + y * y));
     }
 
     /**
@@ -0,0 +1,204 @@
+import java.util.ArrayList;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Portfolio of TSP algorithms run at the same time on separate threads
+ * under one deadline, so there is no need to guess which of them does best
+ * within a time limit. The algorithms share one lock-free best tour, which
+ * each offers its tours to and can start from, and the best tour of any of
+ * them is the tour of the portfolio.
+ */
+public class Portfolio extends TSP {
+
+    private final ArrayList<TSP> strategies;
+    private BestTour best;
+
+    /**
+     * Constructor. Sets the graph the algorithms run on.
+     * @param graph used in the TSP algorithms.
+     */
+    public Portfolio(Graph graph){
+
+        super(graph);
+        this.algorithmName = "PORTFOLIO";
+        this.strategies = new ArrayList<TSP>();
+        this.best = null;
+    }
+
+    /**
+     * Adds an algorithm to the portfolio. It must run on the graph of the
+     * portfolio, and its own time limit is replaced by the deadline of the
+     * portfolio.
+     * @param strategy algorithm to add.
+     */
+    public void add(TSP strategy){
+
+        strategies.add(strategy);
+    }
+
+    /**
+     * Runs every algorithm on its own thread until all of them finish or the
+     * deadline is reached, and keeps the best tour of any of them. If one
+     * of them fails, the others are stopped and the failure is thrown, with
+     * the best tour so far kept.
+     */
+    @Override
+    public void execute(){
+
+        startRun();
+
+        best = new BestTour();
+        ExecutorService pool = Executors.newFixedThreadPool(
+                Math.max(1, strategies.size()));
+        CompletionService<Void> running =
+                new ExecutorCompletionService<Void>(pool);
+
+        for(TSP strategy: strategies){
+
+            strategy.setIncumbent(best);
+            strategy.setTrace(trace);
+            strategy.setProgress(progress);
+
+            if(hasDeadline()){
+                strategy.setDeadline(deadline);
+            }
+
+            running.submit(strategy::execute, null);
+        }
+
+        try {
+
+            // Wait in the order they finish, so a failure is seen at once
+            for(int i = 0; i < strategies.size(); i++){
+                running.take().get();
+            }
+
+        } catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        } catch(ExecutionException e){
+            stop(); // The rest stop with their best tours so far
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+            keepBestTour(); // Even on a failure, so the tour can be written
+            stopRun();
+        }
+    }
+
+    /**
+     * Takes the best tour of any of the algorithms as the tour of the
+     * portfolio, if there is one of every vertex.
+     */
+    private void keepBestTour(){
+
+        BestTour.Solution solution = best.getSolution();
+
+        if(graph.size() > 0 && solution.getTour().length == graph.size()){
+
+            tour = new ArrayTour(solution.getTour());
+            distance = solution.getDistance();
+
+            printSolution(graph.getIdentifier(solution.getTour()[0]),
+                    algorithmName);
+        }
+    }
+
+    /**
+     * Stops the run and every algorithm of the portfolio.
+     */
+    @Override
+    public void stop(){
+
+        super.stop();
+
+        for(TSP strategy: strategies){
+            strategy.stop();
+        }
+    }
+
+    /**
+     * Returns the distance of the best tour found by any of the algorithms
+     * so far.
+     * @return tour distance.
+     */
+    @Override
+    public long getDistance(){
+
+        if(distance == Long.MAX_VALUE && best != null){
+            return best.getDistance();
+        }
+        return distance;
+    }
+
+    /**
+     * Returns the number of start vertices whose search has finished in all
+     * of the algorithms.
+     * @return starts completed.
+     */
+    @Override
+    public long getStartsCompleted(){
+
+        long completed = 0;
+
+        for(TSP strategy: strategies){
+            completed += strategy.getStartsCompleted();
+        }
+        return completed;
+    }
+
+    /**
+     * Returns the number of start vertices all of the algorithms search.
+     * @return starts to search.
+     */
+    @Override
+    public long getStarts(){
+
+        long starts = 0;
+
+        for(TSP strategy: strategies){
+            starts += strategy.getStarts();
+        }
+        return starts;
+    }
+
+    /**
+     * Returns the number of tour improvement moves evaluated by all of the
+     * algorithms so far.
+     * @return moves evaluated.
+     */
+    @Override
+    public long getMovesEvaluated(){
+
+        long evaluated = 0;
+
+        for(TSP strategy: strategies){
+            evaluated += strategy.getMovesEvaluated();
+        }
+        return evaluated;
+    }
+
+    /**
+     * Prints the details of the portfolio and the algorithms in it.
+     */
+    @Override
+    public void printAlgorithmDetails(){
+
+        super.printAlgorithmDetails();
+
+        StringBuilder names = new StringBuilder();
+
+        for(TSP strategy: strategies){
+
+            if(names.length() > 0){
+                names.append(", ");
+            }
+            names.append(strategy.getAlgorithmName());
+        }
+
+        System.out.println("Strategies: " + names);
+    }
+}
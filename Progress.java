@@ -0,0 +1,210 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Console output of the best tours found during a TSP run. The search
+ * threads only add each new best tour to a bounded lock-free queue, and a
+ * background thread prints them, so a search never waits on the console.
+ *
+ * The printing thread wakes up a few times a second and prints only the last
+ * of the tours found since it last woke up, with a count of the ones it
+ * skipped. A burst of improvements early in a run becomes a single line. If
+ * the queue fills up, further tours are counted as skipped rather than
+ * waited for.
+ */
+public class Progress {
+
+    private static final int CAPACITY = 1 << 12;
+    private static final int MASK = CAPACITY - 1;
+
+    // Nanoseconds the printing thread waits between printing the best tours
+    private static final long INTERVAL = 100000000;
+
+    private final AtomicReferenceArray<Improvement> slots;
+    private final AtomicLong tail;
+    private final AtomicLong dropped;
+    private volatile long head;
+    private volatile boolean closed;
+    private final String label;
+    private final Thread printer;
+
+    /**
+     * Constructor. Starts the thread printing the best tours.
+     */
+    public Progress(){
+
+        this("");
+    }
+
+    /**
+     * Constructor. Starts the thread printing the best tours, each after the
+     * given label so the tours of runs printing at the same time can be told
+     * apart.
+     * @param label to print before each tour, or an empty string for none.
+     */
+    public Progress(String label){
+
+        this.label = label;
+        this.slots = new AtomicReferenceArray<Improvement>(CAPACITY);
+        this.tail = new AtomicLong();
+        this.dropped = new AtomicLong();
+        this.head = 0;
+        this.closed = false;
+
+        this.printer = new Thread(this::printImprovements, "progress");
+        printer.setDaemon(true);
+        printer.start();
+    }
+
+    /**
+     * Adds a new best tour to be printed. Never waits, if the queue is full
+     * the tour is only counted.
+     * @param identifier of the start vertex of the tour.
+     * @param algorithm that found the tour.
+     * @param distance of the tour.
+     * @param elapsed time of the run when the tour was found in nanoseconds.
+     */
+    public void improvement(int identifier, String algorithm, long distance,
+                            long elapsed){
+
+        Improvement improvement = new Improvement(identifier, algorithm,
+                distance, elapsed);
+
+        long position;
+
+        do {
+
+            position = tail.get();
+
+            if(position - head >= CAPACITY){
+                dropped.incrementAndGet();
+                return;
+            }
+
+        } while(!tail.compareAndSet(position, position + 1));
+
+        slots.set((int) (position & MASK), improvement);
+    }
+
+    /**
+     * Prints the tours still waiting and stops the printing thread.
+     */
+    public void close(){
+
+        closed = true;
+        LockSupport.unpark(printer);
+
+        try {
+            printer.join();
+        } catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Prints the last of the tours waiting at each interval, until the
+     * progress is closed and every tour added before it has been taken.
+     */
+    private void printImprovements(){
+
+        boolean done = false;
+
+        while(!done){
+
+            // Read the flag first so tours added before closing are taken
+            done = closed;
+
+            Improvement last = null;
+            long skipped = 0;
+            Improvement next;
+
+            while((next = poll()) != null){
+
+                if(last != null){
+                    skipped++;
+                }
+                last = next;
+            }
+
+            if(last != null){
+                print(last, skipped + dropped.getAndSet(0));
+            }
+
+            if(!done){
+                LockSupport.parkNanos(INTERVAL);
+            }
+        }
+    }
+
+    /**
+     * Takes the next tour from the queue, waiting for one whose place has
+     * been taken to be written.
+     * @return next tour, or null if the queue is empty.
+     */
+    private Improvement poll(){
+
+        long position = head;
+
+        if(position == tail.get()){
+            return null;
+        }
+
+        int index = (int) (position & MASK);
+        Improvement improvement;
+
+        while((improvement = slots.get(index)) == null){
+            Thread.onSpinWait(); // Added but not written yet
+        }
+
+        slots.set(index, null);
+        head = position + 1;
+
+        return improvement;
+    }
+
+    /**
+     * Prints a tour in the format of the best distances of a run.
+     * @param improvement to print.
+     * @param skipped number of earlier tours not printed.
+     */
+    private void print(Improvement improvement, long skipped){
+
+        String line = label + improvement.identifier + " "
+                + improvement.algorithm + " - Tour Dist: " + improvement.distance
+                + ", Time = " + Timer.format(improvement.elapsed);
+
+        if(skipped > 0){
+            line += " (" + skipped + " earlier not shown)";
+        }
+
+        System.out.println(line);
+    }
+
+    /**
+     * One best tour of the run.
+     */
+    private static class Improvement {
+
+        private final int identifier;
+        private final String algorithm;
+        private final long distance;
+        private final long elapsed;
+
+        /**
+         * Constructor. Sets the values of the best tour.
+         * @param identifier of the start vertex of the tour.
+         * @param algorithm that found the tour.
+         * @param distance of the tour.
+         * @param elapsed time of the run in nanoseconds.
+         */
+        private Improvement(int identifier, String algorithm, long distance,
+                            long elapsed){
+
+            this.identifier = identifier;
+            this.algorithm = algorithm;
+            this.distance = distance;
+            this.elapsed = elapsed;
+        }
+    }
+}
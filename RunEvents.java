@@ -0,0 +1,78 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JDK Flight Recorder events of a TSP run, recorded with the rest of a
+ * flight recording when one is started, for example with
+ * -XX:StartFlightRecording or jcmd. While nothing is recording, the events
+ * are disabled and cost next to nothing.
+ */
+public class RunEvents {
+
+    /**
+     * Not created, only holds the event types.
+     */
+    private RunEvents(){
+    }
+
+    /**
+     * Building a tour from a start vertex.
+     */
+    @Name("tsp.Construction")
+    @Label("Tour Construction")
+    @Category("TSP")
+    @Description("Building a nearest neighbor tour from a start vertex")
+    public static class Construction extends Event {
+
+        @Label("Start")
+        public int start;
+
+        @Label("Tour Length")
+        public long length;
+    }
+
+    /**
+     * Improving a tour until no improving move is left or the time limit is
+     * reached.
+     */
+    @Name("tsp.Improvement")
+    @Label("Tour Improvement")
+    @Category("TSP")
+    @Description("Improving the tour from a start vertex")
+    public static class Improvement extends Event {
+
+        @Label("Algorithm")
+        public String algorithm;
+
+        @Label("Start")
+        public int start;
+
+        @Label("Initial Tour Length")
+        public long initialLength;
+
+        @Label("Final Tour Length")
+        public long finalLength;
+    }
+
+    /**
+     * A new best tour of the run.
+     */
+    @Name("tsp.ImprovementFound")
+    @Label("Improvement Found")
+    @Category("TSP")
+    @Description("A tour shorter than every tour found before it")
+    public static class ImprovementFound extends Event {
+
+        @Label("Algorithm")
+        public String algorithm;
+
+        @Label("Start")
+        public int start;
+
+        @Label("Tour Length")
+        public long length;
+    }
+}
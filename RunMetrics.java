@@ -0,0 +1,190 @@
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Live metrics of a TSP run, published as the JMX MBean tsp:type=RunMetrics
+ * so a long run can be watched while it goes on. Starting the JMX platform
+ * takes a noticeable part of a second, so the MBean is only registered once
+ * the run has gone on for a short delay, and short runs never pay for it.
+ */
+public class RunMetrics implements RunMetricsMBean {
+
+    private static final String OBJECT_NAME = "tsp:type=RunMetrics";
+
+    // Milliseconds a run goes on before the MBean is registered
+    private static final long REGISTRATION_DELAY = 2000;
+
+    private final TSP tsp;
+    private final long startTime;
+    private Thread registration;
+    private ObjectName name;
+
+    /**
+     * Constructor. Sets the TSP algorithm whose run is measured, starting
+     * from now.
+     * @param tsp algorithm to measure.
+     */
+    public RunMetrics(TSP tsp){
+
+        this.tsp = tsp;
+        this.startTime = System.nanoTime();
+    }
+
+    /**
+     * Registers the MBean after the registration delay, unless the run has
+     * stopped by then.
+     */
+    public void start(){
+
+        registration = new Thread(() -> {
+
+            try {
+                Thread.sleep(REGISTRATION_DELAY);
+                register();
+            } catch(InterruptedException e){
+                // The run finished before the delay
+            }
+
+        }, "metrics");
+
+        registration.setDaemon(true);
+        registration.start();
+    }
+
+    /**
+     * Stops the registration if it is still waiting, or unregisters the MBean
+     * once the run has finished.
+     */
+    public void stop(){
+
+        if(registration != null){
+
+            registration.interrupt();
+
+            try {
+                registration.join();
+            } catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if(name != null){
+
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+            } catch(JMException e){
+                // Already gone
+            }
+            name = null;
+        }
+    }
+
+    /**
+     * Returns the name of the algorithm being run.
+     * @return algorithm name.
+     */
+    @Override
+    public String getAlgorithm(){
+        return tsp.getAlgorithmName();
+    }
+
+    /**
+     * Returns the distance of the best tour found so far.
+     * @return best tour distance, or -1 if no tour has been found.
+     */
+    @Override
+    public long getBestDistance(){
+
+        long distance = tsp.getDistance();
+        return distance == Long.MAX_VALUE ? -1 : distance;
+    }
+
+    /**
+     * Returns the time since the run started.
+     * @return elapsed time in milliseconds.
+     */
+    @Override
+    public long getElapsedTime(){
+
+        return (System.nanoTime() - startTime) / 1000000;
+    }
+
+    /**
+     * Returns the time left before the deadline of the run.
+     * @return remaining time in milliseconds, or -1 if there is no deadline.
+     */
+    @Override
+    public long getRemainingTime(){
+
+        long remaining = tsp.getRemainingTime();
+
+        if(remaining < 0){
+            return -1;
+        }
+        return remaining / 1000000;
+    }
+
+    /**
+     * Returns the number of start vertices whose search has finished.
+     * @return starts completed.
+     */
+    @Override
+    public long getStartsCompleted(){
+        return tsp.getStartsCompleted();
+    }
+
+    /**
+     * Returns the number of start vertices the run searches.
+     * @return starts to search.
+     */
+    @Override
+    public long getStarts(){
+        return tsp.getStarts();
+    }
+
+    /**
+     * Returns the number of tour improvement moves evaluated so far.
+     * @return moves evaluated.
+     */
+    @Override
+    public long getMovesEvaluated(){
+        return tsp.getMovesEvaluated();
+    }
+
+    /**
+     * Returns the mean number of tour improvement moves evaluated each
+     * second since the run started.
+     * @return moves evaluated per second.
+     */
+    @Override
+    public double getMovesEvaluatedPerSecond(){
+
+        long elapsed = getElapsedTime();
+        return elapsed == 0 ? 0 : tsp.getMovesEvaluated() * 1000.0 / elapsed;
+    }
+
+    /**
+     * Registers the MBean with the platform MBean server, replacing the one
+     * of an earlier run.
+     */
+    private void register(){
+
+        try {
+
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+
+            if(server.isRegistered(objectName)){
+                server.unregisterMBean(objectName);
+            }
+
+            server.registerMBean(this, objectName);
+            name = objectName;
+
+        } catch(JMException e){
+            System.out.println("Run metrics could not be registered.");
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * Management interface of the live metrics of a TSP run, read through JMX
+ * with a tool such as JConsole or VisualVM.
+ */
+public interface RunMetricsMBean {
+
+    /**
+     * Returns the name of the algorithm being run.
+     * @return algorithm name.
+     */
+    String getAlgorithm();
+
+    /**
+     * Returns the distance of the best tour found so far.
+     * @return best tour distance, or -1 if no tour has been found.
+     */
+    long getBestDistance();
+
+    /**
+     * Returns the time since the run started.
+     * @return elapsed time in milliseconds.
+     */
+    long getElapsedTime();
+
+    /**
+     * Returns the time left before the time limit of the run.
+     * @return remaining time in milliseconds, or -1 if there is no limit.
+     */
+    long getRemainingTime();
+
+    /**
+     * Returns the number of start vertices whose search has finished.
+     * @return starts completed.
+     */
+    long getStartsCompleted();
+
+    /**
+     * Returns the number of start vertices the run searches.
+     * @return starts to search.
+     */
+    long getStarts();
+
+    /**
+     * Returns the number of tour improvement moves evaluated so far.
+     * @return moves evaluated.
+     */
+    long getMovesEvaluated();
+
+    /**
+     * Returns the mean number of tour improvement moves evaluated each
+     * second since the run started.
+     * @return moves evaluated per second.
+     */
+    double getMovesEvaluatedPerSecond();
+}
@@ -0,0 +1,451 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local HTTP service solving TSP instances in a JVM that stays running, so
+ * every request after the first runs on code the JIT compiler has already
+ * warmed up. The service only listens on the loopback address.
+ *
+ * A request is a POST to /solve with the cities in the body, in the format
+ * of the location files, or with the file query parameter naming a location
+ * file on this machine. The other query parameters are
+ *
+ *      algorithm - one of the algorithms of Main, NNR2OPT by default
+ *      deadline - milliseconds from the arrival of the request to answer by,
+ *                 10 seconds by default and 5 minutes at most
+ *      threads - search threads of the repetitive algorithms, 1 by default
+ *                and at most the processors divided between the workers
+ *      neighbors - near neighbors of the 2OPTK and LK algorithms
+ *      oropt - segment length of an added Or-opt stage
+ *
+ * The answer is a JSON object with the tour distance and the identifiers of
+ * the cities in tour order. The time waiting in the queue counts against
+ * the deadline, and a request still queued at its deadline is answered with
+ * 504. Requests run on a fixed pool of workers with a bounded queue, and a
+ * request arriving to a full queue is answered with 503 straight away.
+ * The memory for the distances and the processors for the search threads
+ * are split between the workers.
+ */
+public class Server {
+
+    private static final String PORT = "PORT";
+    private static final String WORKERS = "WORKERS";
+    private static final String QUEUE = "QUEUE";
+    private static final String DEADLINE = "DEADLINE";
+    private static final String MAX_DEADLINE = "MAXDEADLINE";
+    private static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_QUEUE = 64;
+    private static final String DEFAULT_ALGORITHM = "NNR2OPT";
+    private static final int DEFAULT_DEADLINE = 10000;
+    private static final int DEFAULT_MAX_DEADLINE = 300000;
+
+    // Part of the deadline the algorithm runs for, leaving time to answer
+    private static final double DEADLINE_FRACTION = 0.99;
+
+    private final HttpServer http;
+    private final ThreadPoolExecutor workers;
+    private final AtomicLong requests;
+    private final long distanceBudget;
+    private final int maxThreads;
+    private final long defaultDeadline;
+    private final long maxDeadline;
+
+    /**
+     * Constructor. Binds the service to a port of the loopback address.
+     * @param port to listen on, or 0 for any free port.
+     * @param workerCount number of requests solved at the same time.
+     * @param queueSize number of requests waiting for a worker at most.
+     * @param defaultDeadline milliseconds of a request without a deadline.
+     * @param maxDeadline milliseconds of the longest deadline allowed.
+     * @throws IOException if the port cannot be bound.
+     */
+    public Server(int port, int workerCount, int queueSize,
+                  long defaultDeadline, long maxDeadline) throws IOException {
+
+        this.requests = new AtomicLong();
+        this.distanceBudget = DistanceOracle.defaultMemoryBudget()
+                / workerCount;
+        this.maxThreads = Math.max(1,
+                Runtime.getRuntime().availableProcessors() / workerCount);
+        this.maxDeadline = maxDeadline;
+        this.defaultDeadline = Math.min(defaultDeadline, maxDeadline);
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount,
+                0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize));
+
+        this.http = HttpServer.create(new InetSocketAddress(
+                InetAddress.getLoopbackAddress(), port), 0);
+        http.createContext("/solve", this::admit);
+    }
+
+    /**
+     * Runs the service given on the command line, with optional PORT-number,
+     * WORKERS-count, QUEUE-size, DEADLINE-milliseconds and
+     * MAXDEADLINE-milliseconds settings. The workers default to the number
+     * of available processors. DEADLINE applies to requests without one and
+     * MAXDEADLINE caps the deadline of every request.
+     * @param args settings of the service.
+     */
+    public static void main(String[] args){
+
+        int port = setting(args, PORT, DEFAULT_PORT);
+        int workerCount = setting(args, WORKERS,
+                Runtime.getRuntime().availableProcessors());
+        int queueSize = setting(args, QUEUE, DEFAULT_QUEUE);
+        int defaultDeadline = setting(args, DEADLINE, DEFAULT_DEADLINE);
+        int maxDeadline = setting(args, MAX_DEADLINE, DEFAULT_MAX_DEADLINE);
+
+        try {
+
+            Server server = new Server(port, Math.max(1, workerCount),
+                    Math.max(1, queueSize), Math.max(1, defaultDeadline),
+                    Math.max(1, maxDeadline));
+            server.start();
+
+            System.out.println("Solving on http://localhost:"
+                    + server.getPort() + "/solve with " + workerCount
+                    + " workers and a queue of " + queueSize);
+
+        } catch(IOException e){
+            System.out.println("Port " + port + " could not be bound.");
+        }
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start(){
+
+        http.start();
+    }
+
+    /**
+     * Stops accepting requests and lets the requests already admitted finish.
+     */
+    public void stop(){
+
+        http.stop(0);
+        workers.shutdown();
+    }
+
+    /**
+     * Returns the port the service listens on.
+     * @return port number.
+     */
+    public int getPort(){
+
+        return http.getAddress().getPort();
+    }
+
+    /**
+     * Admits a request to the worker queue, or turns it away if the queue
+     * is full. Runs on the thread accepting requests, so it never solves.
+     * @param exchange of the request.
+     */
+    private void admit(HttpExchange exchange){
+
+        long arrival = System.nanoTime();
+
+        try {
+
+            if(exchange.getRequestMethod().compareTo("POST") != 0){
+                respond(exchange, 405, error("Use POST"));
+                return;
+            }
+
+            long request = requests.incrementAndGet();
+            workers.execute(() -> solve(exchange, request, arrival));
+
+        } catch(RejectedExecutionException e){
+            respond(exchange, 503, error("Too many requests waiting"));
+        }
+    }
+
+    /**
+     * Solves a request and answers it with the tour.
+     * @param exchange of the request.
+     * @param request number of the request, to tell its output apart.
+     * @param arrival time of the request in nanoseconds.
+     */
+    private void solve(HttpExchange exchange, long request, long arrival){
+
+        Path cities = null;
+
+        try {
+
+            Map<String, String> query = parseQuery(exchange.getRequestURI()
+                    .getRawQuery());
+            String algorithm = query.getOrDefault("algorithm",
+                    DEFAULT_ALGORITHM);
+
+            if(!Arrays.asList(Main.getAlgorithmNames()).contains(algorithm)){
+                respond(exchange, 400, error("Unknown algorithm " + algorithm));
+                return;
+            }
+
+            int threads = Integer.parseInt(query.getOrDefault("threads", "1"));
+
+            if(threads < 1 || threads > maxThreads){
+                respond(exchange, 400, error("Threads must be from 1 to "
+                        + maxThreads));
+                return;
+            }
+
+            long milliseconds = defaultDeadline;
+
+            if(query.containsKey("deadline")){ // Capped to the longest allowed
+                milliseconds = Math.min(Long.parseLong(query.get("deadline")),
+                        maxDeadline);
+            }
+
+            long budget = TimeUnit.MILLISECONDS.toNanos(milliseconds);
+            long deadline = arrival + (long) (budget * DEADLINE_FRACTION);
+
+            if(deadline - System.nanoTime() <= 0){
+                respond(exchange, 504, error("Deadline passed in the queue"));
+                return;
+            }
+
+            String fileName = query.get("file");
+
+            if(fileName == null){ // Read the cities from the body
+                cities = Files.createTempFile("tsp", ".txt");
+
+                try(InputStream body = exchange.getRequestBody()){
+                    Files.copy(body, cities,
+                            StandardCopyOption.REPLACE_EXISTING);
+                }
+                fileName = cities.toString();
+            }
+
+            FileInputProcessor file = new FileInputProcessor(fileName);
+
+            if(!file.isValidFile()){
+                respond(exchange, 400, error("No file " + fileName));
+                return;
+            }
+
+            Graph graph = new Graph(distanceBudget);
+            graph.fillGraphContentsFromFile(file);
+
+            if(graph.isEmpty()){
+                respond(exchange, 400, error("No cities given"));
+                return;
+            }
+
+            TSP tsp = Main.createAlgorithm(graph, options(fileName, algorithm,
+                    threads, query));
+
+            tsp.setDeadline(deadline);
+
+            Progress progress = new Progress("[" + request + "] ");
+            tsp.setProgress(progress);
+
+            try {
+                tsp.execute();
+            } finally {
+                progress.close();
+            }
+
+            respond(exchange, 200, answer(tsp, algorithm, arrival));
+
+        } catch(NumberFormatException e){
+            respond(exchange, 400, error("Invalid number " + e.getMessage()));
+        } catch(IOException | RuntimeException e){
+            respond(exchange, 500, error(e.toString()));
+        } finally {
+
+            if(cities != null){
+
+                try {
+                    Files.deleteIfExists(cities);
+                } catch(IOException e){
+                    // Left in the temporary folder
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the command line arguments of Main for a request.
+     * @param fileName of the cities.
+     * @param algorithm to run.
+     * @param threads of the search.
+     * @param query parameters of the request.
+     * @return arguments to create the algorithm with.
+     */
+    private static String[] options(String fileName, String algorithm,
+                                    int threads, Map<String, String> query){
+
+        List<String> options = new ArrayList<String>(Arrays.asList(
+                fileName, algorithm, "NONE", "NONE", "THREADS-" + threads));
+
+        if(query.containsKey("neighbors")){
+            options.add("NEIGHBORS-" + query.get("neighbors"));
+        }
+
+        if(query.containsKey("oropt")){
+            options.add("OROPT-" + query.get("oropt"));
+        }
+
+        return options.toArray(new String[0]);
+    }
+
+    /**
+     * Returns the answer to a solved request.
+     * @param tsp algorithm that solved the request.
+     * @param algorithm name of the algorithm.
+     * @param arrival time of the request in nanoseconds.
+     * @return JSON object with the tour.
+     */
+    private static String answer(TSP tsp, String algorithm, long arrival){
+
+        StringBuilder tour = new StringBuilder();
+
+        for(Vertex vertex: tsp.getTour()){
+
+            if(tour.length() > 0){
+                tour.append(',');
+            }
+            tour.append(vertex.getIdentifier());
+        }
+
+        return "{\"algorithm\":\"" + algorithm
+                + "\",\"distance\":" + tsp.getDistance()
+                + ",\"timeLimitReached\":" + tsp.timeLimitHasBeenReached()
+                + ",\"time_ns\":" + (System.nanoTime() - arrival)
+                + ",\"tour\":[" + tour + "]}";
+    }
+
+    /**
+     * Returns the answer to a request that could not be solved.
+     * @param message describing the problem.
+     * @return JSON object with the message.
+     */
+    private static String error(String message){
+
+        StringBuilder escaped = new StringBuilder();
+
+        for(int i = 0; i < message.length(); i++){
+
+            char c = message.charAt(i);
+
+            if(c == '"' || c == '\\'){
+                escaped.append('\\').append(c);
+            } else if(c == '\n'){
+                escaped.append("\\n");
+            } else if(c == '\r'){
+                escaped.append("\\r");
+            } else if(c == '\t'){
+                escaped.append("\\t");
+            } else if(c < ' '){ // Other control characters
+                escaped.append(String.format("\\u%04x", (int) c));
+            } else {
+                escaped.append(c);
+            }
+        }
+
+        return "{\"error\":\"" + escaped + "\"}";
+    }
+
+    /**
+     * Sends the answer to a request and closes it.
+     * @param exchange of the request.
+     * @param status HTTP status code.
+     * @param body JSON answer.
+     */
+    private static void respond(HttpExchange exchange, int status, String body){
+
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+
+        try(OutputStream out = exchange.getResponseBody()){
+
+            exchange.getResponseHeaders().set("Content-Type",
+                    "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            out.write(bytes);
+
+        } catch(IOException e){
+            // The client has gone
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Returns the parameters of a query string.
+     * @param query raw query string, or null for none.
+     * @return parameter values by name.
+     */
+    private static Map<String, String> parseQuery(String query){
+
+        Map<String, String> parameters = new HashMap<String, String>();
+
+        if(query == null){
+            return parameters;
+        }
+
+        for(String parameter: query.split("&")){
+
+            int equals = parameter.indexOf('=');
+
+            if(equals > 0){
+                parameters.put(
+                        URLDecoder.decode(parameter.substring(0, equals),
+                                StandardCharsets.UTF_8),
+                        URLDecoder.decode(parameter.substring(equals + 1),
+                                StandardCharsets.UTF_8));
+            }
+        }
+
+        return parameters;
+    }
+
+    /**
+     * Returns the value of a setting given in the form NAME-integer, or the
+     * default value if the setting is not given or is not a valid integer.
+     * @param args settings of the service.
+     * @param name of the setting.
+     * @param defaultValue to use if the setting is not given.
+     * @return value of the setting.
+     */
+    private static int setting(String[] args, String name, int defaultValue){
+
+        for(String arg: args){
+
+            String[] setting = arg.split("-");
+
+            if(setting.length == 2 && setting[0].compareTo(name) == 0){
+
+                try { // Check if number
+                    return Integer.parseInt(setting[1]);
+                } catch(NumberFormatException e){
+                    System.out.println("\n# Invalid " + name.toLowerCase()
+                            + " setting, using " + defaultValue);
+                }
+            }
+        }
+
+        return defaultValue;
+    }
+}
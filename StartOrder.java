@@ -0,0 +1,112 @@
+import java.util.Arrays;
+
+/**
+ * Order in which the repetitive nearest neighbor algorithm searches its
+ * start vertices. The vertices are sorted along a Z-order curve through the
+ * plane, and the positions along the curve are taken in bit reversed order,
+ * so the starts searched first are spread evenly over the whole graph and
+ * every start added halves the gaps left between them. A run stopped by its
+ * time limit has then covered the graph evenly however far it got, whatever
+ * the order of the cities in the file.
+ */
+public class StartOrder {
+
+    // Bits of each coordinate in the Z-order curve, leaving the curve
+    // position room in a long sort key beside the vertex index
+    private static final int BITS = 15;
+
+    /**
+     * Not created, only holds the ordering.
+     */
+    private StartOrder(){
+    }
+
+    /**
+     * Returns the start vertices of a graph in the order to search them.
+     * @param graph to order the vertices of.
+     * @return vertex indices, each once, in search order.
+     */
+    public static int[] stratified(Graph graph){
+
+        int n = graph.size();
+        int[] curve = zOrder(graph);
+        int[] order = new int[n];
+
+        // Bits needed to number every position along the curve
+        int bits = 32 - Integer.numberOfLeadingZeros(Math.max(1, n - 1));
+        int next = 0;
+
+        for(int i = 0; next < n; i++){
+
+            int position = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+
+            if(position < n){
+                order[next++] = curve[position];
+            }
+        }
+
+        return order;
+    }
+
+    /**
+     * Returns the vertices of a graph sorted along a Z-order curve over the
+     * bounding box of the graph, with ties kept in index order.
+     * @param graph to sort the vertices of.
+     * @return vertex indices in curve order.
+     */
+    private static int[] zOrder(Graph graph){
+
+        int n = graph.size();
+        long minX = Long.MAX_VALUE, minY = Long.MAX_VALUE;
+        long maxX = Long.MIN_VALUE, maxY = Long.MIN_VALUE;
+
+        for(int v = 0; v < n; v++){
+            minX = Math.min(minX, graph.getX(v));
+            minY = Math.min(minY, graph.getY(v));
+            maxX = Math.max(maxX, graph.getX(v));
+            maxY = Math.max(maxY, graph.getY(v));
+        }
+
+        long width = Math.max(1, maxX - minX);
+        long height = Math.max(1, maxY - minY);
+        long cells = (1L << BITS) - 1;
+
+        // The curve position in the high bits and the vertex in the low bits
+        long[] keys = new long[n];
+
+        for(int v = 0; v < n; v++){
+
+            int x = (int) ((graph.getX(v) - minX) * cells / width);
+            int y = (int) ((graph.getY(v) - minY) * cells / height);
+
+            keys[v] = (interleave(x) | interleave(y) << 1) << 32 | v;
+        }
+
+        Arrays.sort(keys);
+
+        int[] curve = new int[n];
+
+        for(int i = 0; i < n; i++){
+            curve[i] = (int) keys[i];
+        }
+
+        return curve;
+    }
+
+    /**
+     * Spreads the bits of a coordinate out to every other bit.
+     * @param coordinate of BITS bits.
+     * @return bits of the coordinate in the even bit positions.
+     */
+    private static long interleave(int coordinate){
+
+        long bits = coordinate & ((1L << BITS) - 1);
+
+        bits = (bits | bits << 8) & 0x00FF00FFL;
+        bits = (bits | bits << 4) & 0x0F0F0F0FL;
+        bits = (bits | bits << 2) & 0x33333333L;
+        bits = (bits | bits << 1) & 0x55555555L;
+
+        return bits;
+    }
+}
@@ -1,19 +1,38 @@
 import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Traveling Salesman Problem. Gives a solution to TSP problem given a graph
  * with vertex identifiers, x-coordinates, and y-coordinates for each city.
+ * Each TSP algorithm extends this class and runs from {@link #execute()}.
  */
-public class TSP {
+public abstract class TSP {
+
+    // Part of the time limit the algorithm runs for, leaving time to write
+    // out the tour
+    private static final double LIMIT_FRACTION = 0.99;
 
     protected Graph graph;
-    protected ArrayList<Vertex> tour;
-    protected long distance;
+    protected Tour tour;
+    protected volatile long distance;
     protected Timer timer;
     protected String algorithmName;
     protected boolean hasTimeLimit;
     protected UnitOfTime unit;
     protected long limit;
+    protected long firstSolutionTime;
+    protected long bestSolutionTime;
+    protected Trace trace;
+    protected Progress progress;
+    protected BestTour incumbent;
+    protected LongAdder movesEvaluated;
+    protected volatile long deadline;
+    private volatile boolean deadlineGiven;
+    private Thread watchdog;
+    private volatile boolean limitReached;
+    private volatile boolean stopped;
 
     /**
      * Default Constructor. Setups the Graph to run the TSP algorithm on and
@@ -23,12 +42,177 @@ public class TSP {
     public TSP(Graph graph){
 
         this.graph = graph;
-        this.tour = new ArrayList<Vertex>();
+        this.tour = new ArrayTour(new int[0]);
         this.distance = Long.MAX_VALUE;
         this.timer = new Timer();
         this.hasTimeLimit = false;
         this.limit = 0;
         this.unit = UnitOfTime.MINUTES;
+        this.firstSolutionTime = 0;
+        this.bestSolutionTime = 0;
+        this.trace = null;
+        this.progress = null;
+        this.incumbent = null;
+        this.movesEvaluated = new LongAdder();
+        this.deadline = 0;
+        this.deadlineGiven = false;
+        this.limitReached = false;
+        this.stopped = false;
+    }
+
+    /**
+     * Executes the TSP algorithm, leaving its best tour and distance in the
+     * tour and distance fields.
+     */
+    public abstract void execute();
+
+    /**
+     * Sets a maximum run time for the TSP algorithm, after which it stops
+     * with the best tour it has found.
+     * @param unit of time the limit is given in.
+     * @param limit maximum run time in the unit of time.
+     */
+    public void setTimeLimit(UnitOfTime unit, long limit){
+
+        this.unit = unit;
+        this.limit = limit;
+        this.hasTimeLimit = true;
+    }
+
+    /**
+     * Sets the time the algorithm must stop by, as given by
+     * {@link System#nanoTime()}, in place of its own time limit. This shares
+     * one time limit between algorithms that run one after the other.
+     * @param deadline time to stop by in nanoseconds.
+     */
+    public void setDeadline(long deadline){
+
+        this.deadline = deadline;
+        this.deadlineGiven = true;
+    }
+
+    /**
+     * Stops the algorithm as if its time limit had been reached, so it
+     * finishes with its best tour so far. An algorithm stopped before its
+     * run starts stops as soon as the run starts.
+     */
+    public void stop(){
+
+        stopped = true;
+        limitReached = true;
+    }
+
+    /**
+     * Sets the trace that the progress of the algorithm is recorded to.
+     * @param trace to record to, or null to record nothing.
+     */
+    public void setTrace(Trace trace){
+
+        this.trace = trace;
+    }
+
+    /**
+     * Sets the best tour shared with the other algorithms of a portfolio. The
+     * algorithm offers its tours to it and may start from it.
+     * @param incumbent shared best tour, or null to keep the best tour to
+     *                  the algorithm itself.
+     */
+    public void setIncumbent(BestTour incumbent){
+
+        this.incumbent = incumbent;
+    }
+
+    /**
+     * Sets the progress that the best tours are printed through, instead of
+     * printing them on the thread that finds them.
+     * @param progress to print through, or null to print directly.
+     */
+    public void setProgress(Progress progress){
+
+        this.progress = progress;
+    }
+
+    /**
+     * Returns the name of the TSP algorithm.
+     * @return algorithm name.
+     */
+    public String getAlgorithmName(){
+        return algorithmName;
+    }
+
+    /**
+     * Returns the maximum run time of the TSP algorithm in the given unit of
+     * time.
+     * @param unit of time to return the limit in.
+     * @return maximum run time, or -1 if there is no time limit.
+     */
+    public long getTimeLimit(UnitOfTime unit){
+
+        if(!hasTimeLimit){
+            return -1;
+        }
+        return timeUnit(unit).convert(limit, timeUnit(this.unit));
+    }
+
+    /**
+     * Returns the time left before the deadline of the run, whether it comes
+     * from the time limit of the algorithm or was given to it.
+     * @return remaining time in nanoseconds, or -1 if there is no deadline.
+     */
+    public long getRemainingTime(){
+
+        if(!hasDeadline()){
+            return -1;
+        }
+        return Math.max(0, deadline - System.nanoTime());
+    }
+
+    /**
+     * Calculates the total tour distance.
+     * @param tour of vertex indices in order of travel.
+     * @return total tour distance.
+     */
+    protected long calculateTotalDistance(int[] tour){
+
+        DistanceOracle distances = graph.getDistanceOracle();
+        long distance = 0;
+
+        // Calculates the distance between all the adjacent cities in the tour
+        for(int i = 1; i < tour.length; i++){
+            distance += distances.distance(tour[i - 1], tour[i]);
+        }
+
+        // Add the return route to the distance
+        if(tour.length > 0){
+            distance += distances.distance(tour[0], tour[tour.length - 1]);
+        }
+
+        return distance;
+    }
+
+    /**
+     * Returns the number of start vertices whose search has finished.
+     * @return starts completed.
+     */
+    public long getStartsCompleted(){
+
+        return distance == Long.MAX_VALUE ? 0 : 1;
+    }
+
+    /**
+     * Returns the number of start vertices the algorithm searches.
+     * @return starts to search.
+     */
+    public long getStarts(){
+        return 1;
+    }
+
+    /**
+     * Returns the number of tour improvement moves evaluated so far.
+     * @return moves evaluated.
+     */
+    public long getMovesEvaluated(){
+        return movesEvaluated.sum();
     }
 
     /**
@@ -41,10 +225,28 @@ public class TSP {
 
     /**
      * Returns the tour derived from the TSP algorithm.
-     * @return tour.
+     * @return tour in order of travel.
      */
     public ArrayList<Vertex> getTour(){
-        return tour;
+        return graph.getVertices(tour.toArray());
+    }
+
+    /**
+     * Returns the time the first tour was found, as given by
+     * {@link System#nanoTime()}. Only meaningful once a tour has been found.
+     * @return time the first tour was found in nanoseconds.
+     */
+    public long getFirstSolutionTime(){
+        return firstSolutionTime;
+    }
+
+    /**
+     * Returns the time the best tour was found, as given by
+     * {@link System#nanoTime()}. Only meaningful once a tour has been found.
+     * @return time the best tour was found in nanoseconds.
+     */
+    public long getBestSolutionTime(){
+        return bestSolutionTime;
     }
 
     /**
@@ -84,34 +286,160 @@ public class TSP {
         FileOutputProcessor file = new FileOutputProcessor(fileName);
         file.setup();
         file.writeDistanceToFile(distance);
-        file.writePathToFile(tour);
+        file.writePathToFile(getTour());
         file.teardown();
     }
 
     /**
      * Prints the current solution distance and execution time to the console.
+     * Each printed solution is the best so far, so the time it was found is
+     * kept as the time of the best tour. With a progress set, the solution
+     * is only handed to it, and printed later by its own thread.
      * @param identifier for the source vertex
      */
     public void printSolution(int identifier, String algorithmUsed){
 
-        System.out.println(identifier + " " + algorithmUsed
-                + " - Tour Dist: " + distance
-                + ", Time = " + timer.getElapsedTime());
+        bestSolutionTime = System.nanoTime();
+
+        if(firstSolutionTime == 0){
+            firstSolutionTime = bestSolutionTime;
+        }
+
+        if(trace != null){
+            trace.record(Trace.BEST, identifier, distance, 0, 0);
+        }
+
+        RunEvents.ImprovementFound event = new RunEvents.ImprovementFound();
+
+        if(event.shouldCommit()){
+            event.algorithm = algorithmUsed;
+            event.start = identifier;
+            event.length = distance;
+            event.commit();
+        }
+
+        if(progress != null){
+            progress.improvement(identifier, algorithmUsed, distance,
+                    timer.getElapsedTime(UnitOfTime.NONE));
+        } else {
+            System.out.println(identifier + " " + algorithmUsed
+                    + " - Tour Dist: " + distance
+                    + ", Time = " + timer.getElapsedTime());
+        }
     }
 
     /**
-     * Checks if the time limit has been reached or not. If it has, a message
-     * is printed to the console and the timer is stopped.
+     * Prints the algorithm details to the console.
      */
-    protected boolean timeLimitHasBeenReached(){
+    public void printAlgorithmDetails(){
+
+        System.out.println("\nAlgorithm: " + getAlgorithmName());
 
         if(hasTimeLimit){
+            System.out.println("Max run time: "
+                    + limit + " "
+                    + unit.toString().toLowerCase());
+        } else {
+            System.out.println("Max run time: NONE");
+        }
+    }
+
+    /**
+     * Starts the timer of a run and, if the run has a time limit, its
+     * deadline. The deadline is worked out once in nanoseconds, and a
+     * watchdog thread waits for it and then sets the flag every thread checks
+     * the limit with.
+     */
+    protected void startRun(){
+
+        timer.startTimer();
+        limitReached = stopped;
+
+        if(!deadlineGiven && hasTimeLimit){
+            deadline = System.nanoTime()
+                    + (long) (timeUnit(unit).toNanos(limit) * LIMIT_FRACTION);
+        }
+
+        if(hasDeadline()){
+
+            final long stopTime = deadline;
+
+            watchdog = new Thread(() -> {
+
+                long remaining;
+
+                while((remaining = stopTime - System.nanoTime()) > 0){
+
+                    LockSupport.parkNanos(remaining);
+
+                    if(Thread.currentThread().isInterrupted()){
+                        return; // The run finished before the deadline
+                    }
+                }
+
+                limitReached = true;
+
+            }, "watchdog");
+
+            watchdog.setDaemon(true);
+            watchdog.start();
+        }
+    }
+
+    /**
+     * Stops the timer of a run and its watchdog.
+     */
+    protected void stopRun(){
+
+        if(watchdog != null){
+            watchdog.interrupt();
+            watchdog = null;
+        }
+
+        timer.stopTimer();
+    }
+
+    /**
+     * Checks if the run has a deadline, either from its own time limit or
+     * given to it.
+     * @return true if the run has a deadline and false otherwise.
+     */
+    protected boolean hasDeadline(){
+
+        return deadlineGiven || hasTimeLimit;
+    }
+
+    /**
+     * Checks if the time limit has been reached or not. The watchdog of the
+     * run sets the flag at the deadline, so checking it is a single read
+     * that is cheap enough for the innermost loops.
+     * @return true if the time limit has been reached and false otherwise.
+     */
+    protected boolean timeLimitHasBeenReached(){
+
+        return limitReached;
+    }
+
+    /**
+     * Returns the time unit matching a unit of time, with nanoseconds for
+     * none as the timer uses.
+     * @param unit of time to match.
+     * @return matching time unit.
+     */
+    private static TimeUnit timeUnit(UnitOfTime unit){
+
+        switch(unit){
 
-            if(timer.getElapsedTime(unit) >= (limit * 0.99)){
-                timer.stopTimer();
-                return true;
-            }
+            case MILLISECONDS:
+                return TimeUnit.MILLISECONDS;
+            case SECONDS:
+                return TimeUnit.SECONDS;
+            case MINUTES:
+                return TimeUnit.MINUTES;
+            case HOURS:
+                return TimeUnit.HOURS;
+            default:
+                return TimeUnit.NANOSECONDS;
         }
-        return false;
     }
 }
@@ -3,16 +3,17 @@ import java.text.DecimalFormat;
 
 /**
  * Creates a Timer with start, stop and current lap time functionality.
+ * The elapsed time can be read from any thread while the timer runs.
  *
  * @author Seth Dovgan
  * @version 18FEB18
  */
 public class Timer {
 
-    private long startTime;
-    private long stopTime;
-    private long elapsedTime;
-    private boolean hasTimerStopped;
+    private volatile long startTime;
+    private volatile long stopTime;
+    private volatile long elapsedTime;
+    private volatile boolean hasTimerStopped;
 
     /**
      * Constructor. Initializes all the times to zero.
@@ -45,14 +46,16 @@ public class Timer {
     }
 
     /**
-     * Sets the current elapsed time lap. This method must be called before
-     * getting getting the current elapsed time.
+     * Returns the current elapsed time lap in nanoseconds, which is the time
+     * between the start and stop times once the timer has stopped.
+     * @return current elapsed time.
      */
-    private void setCurrentElapsedTime(){
+    private long currentElapsedTime(){
 
-        if(!hasTimerStopped){
-            elapsedTime = System.nanoTime() - startTime;
+        if(hasTimerStopped){
+            return elapsedTime;
         }
+        return System.nanoTime() - startTime;
     }
 
     /**
@@ -62,20 +65,20 @@ public class Timer {
      */
     public long getElapsedTime(UnitOfTime unit){
 
-        setCurrentElapsedTime();
+        long elapsed = currentElapsedTime();
 
         switch(unit){
 
             case MILLISECONDS:
-                return TimeUnit.MILLISECONDS.convert(elapsedTime, TimeUnit.NANOSECONDS);
+                return TimeUnit.MILLISECONDS.convert(elapsed, TimeUnit.NANOSECONDS);
             case SECONDS:
-                return TimeUnit.SECONDS.convert(elapsedTime, TimeUnit.NANOSECONDS);
+                return TimeUnit.SECONDS.convert(elapsed, TimeUnit.NANOSECONDS);
             case MINUTES:
-                return TimeUnit.MINUTES.convert(elapsedTime, TimeUnit.NANOSECONDS);
+                return TimeUnit.MINUTES.convert(elapsed, TimeUnit.NANOSECONDS);
             case HOURS:
-                return TimeUnit.HOURS.convert(elapsedTime, TimeUnit.NANOSECONDS);
+                return TimeUnit.HOURS.convert(elapsed, TimeUnit.NANOSECONDS);
             default:
-                return elapsedTime;
+                return elapsed;
         }
     }
 
@@ -87,31 +90,40 @@ public class Timer {
      */
     public String getElapsedTime(){
 
-        setCurrentElapsedTime();
+        return format(currentElapsedTime());
+    }
+
+    /**
+     * Returns an elapsed time in a proper format, in the same way as the
+     * current elapsed time of a timer.
+     * @param elapsed time in nanoseconds.
+     * @return string representation of the elapsed time.
+     */
+    public static String format(long elapsed){
 
         DecimalFormat f = new DecimalFormat("#.###");
 
-        if(TimeUnit.MILLISECONDS.convert(elapsedTime , TimeUnit.NANOSECONDS) < 1){
+        if(TimeUnit.MILLISECONDS.convert(elapsed , TimeUnit.NANOSECONDS) < 1){
 
-            return f.format(elapsedTime) + " nanoseconds";
+            return f.format(elapsed) + " nanoseconds";
 
-        } else if(TimeUnit.SECONDS.convert(elapsedTime, TimeUnit.NANOSECONDS) < 1){
+        } else if(TimeUnit.SECONDS.convert(elapsed, TimeUnit.NANOSECONDS) < 1){
 
-            return f.format(TimeUnit.MILLISECONDS.convert(elapsedTime, TimeUnit.NANOSECONDS))
+            return f.format(TimeUnit.MILLISECONDS.convert(elapsed, TimeUnit.NANOSECONDS))
                     + " milliseconds";
 
-        } else if(TimeUnit.MINUTES.convert(elapsedTime, TimeUnit.NANOSECONDS) < 1){
+        } else if(TimeUnit.MINUTES.convert(elapsed, TimeUnit.NANOSECONDS) < 1){
 
-            return f.format(TimeUnit.SECONDS.convert(elapsedTime, TimeUnit.NANOSECONDS))
+            return f.format(TimeUnit.SECONDS.convert(elapsed, TimeUnit.NANOSECONDS))
                     + " seconds";
 
-        } else if(TimeUnit.HOURS.convert(elapsedTime, TimeUnit.NANOSECONDS) < 1){
+        } else if(TimeUnit.HOURS.convert(elapsed, TimeUnit.NANOSECONDS) < 1){
 
-            return f.format(TimeUnit.MINUTES.convert(elapsedTime, TimeUnit.NANOSECONDS))
+            return f.format(TimeUnit.MINUTES.convert(elapsed, TimeUnit.NANOSECONDS))
                     + " minutes";
         } else {
 
-            return f.format(TimeUnit.HOURS.convert(elapsedTime, TimeUnit.NANOSECONDS))
+            return f.format(TimeUnit.HOURS.convert(elapsed, TimeUnit.NANOSECONDS))
                     + " hours";
         }
     }
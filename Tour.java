@@ -0,0 +1,74 @@
+/**
+ * A tour through the vertices of a graph, identified by their index in the
+ * graph, that can be changed by 2-opt moves. The tour has a direction of
+ * travel, but a move may leave the tour running the other way, as both ways
+ * around are the same tour.
+ */
+public interface Tour {
+
+    // Smallest tour kept as a two-level list instead of an array
+    int TWO_LEVEL_SIZE = 25000;
+
+    /**
+     * Creates the tour representation suited to the number of vertices. A
+     * 2-opt move reverses up to half of an array, so larger tours are kept
+     * as a two-level list, which reverses any part of the tour in time
+     * proportional to the square root of its size.
+     * @param order of vertex indices in order of travel.
+     * @return tour starting from the first vertex in the order.
+     */
+    static Tour create(int[] order){
+
+        if(order.length >= TWO_LEVEL_SIZE){
+            return new TwoLevelTour(order);
+        }
+        return new ArrayTour(order);
+    }
+
+    /**
+     * Returns the number of vertices in the tour.
+     * @return size of the tour.
+     */
+    int size();
+
+    /**
+     * Returns the vertex after a vertex in the tour.
+     * @param vertex in the tour.
+     * @return next vertex.
+     */
+    int next(int vertex);
+
+    /**
+     * Returns the vertex before a vertex in the tour.
+     * @param vertex in the tour.
+     * @return previous vertex.
+     */
+    int prev(int vertex);
+
+    /**
+     * Checks if b is reached on the way forward through the tour from a to
+     * c, including at either end.
+     * @param a vertex to start from.
+     * @param b vertex to check.
+     * @param c vertex to stop at.
+     * @return true if b is between a and c and false otherwise.
+     */
+    boolean between(int a, int b, int c);
+
+    /**
+     * Replaces the tour edges (a, b) and (c, d) with (a, c) and (b, d), where
+     * b follows a and d follows c in the same direction through the tour.
+     * @param a vertex of the first edge.
+     * @param b vertex after a.
+     * @param c vertex of the second edge.
+     * @param d vertex after c.
+     */
+    void flip(int a, int b, int c, int d);
+
+    /**
+     * Returns the vertices in order of travel, starting from the vertex the
+     * tour was created with.
+     * @return vertex indices in order of travel.
+     */
+    int[] toArray();
+}
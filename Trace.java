@@ -0,0 +1,260 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Machine readable trace of the progress of a TSP run, for plotting the tour
+ * length against time. Each record holds the time in nanoseconds since the
+ * trace was opened, the phase of the run, the identifier of the start vertex
+ * of the tour, the tour length, and the moves evaluated and applied since
+ * the last record of the phase for that tour. Records are written as CSV,
+ * or as JSON lines if the file name ends in .jsonl or .json.
+ *
+ * The search threads only add records to a queue. A background thread
+ * formats and writes them through a buffered writer, so a run is never slowed
+ * down by writing to the file. If the writer falls a full queue behind, the
+ * records that do not fit are dropped and counted rather than waited for.
+ */
+public class Trace {
+
+    // Phases of a run
+    public static final String CONSTRUCTION = "construction";
+    public static final String TWO_OPT = "2-opt";
+    public static final String OR_OPT = "or-opt";
+    public static final String LIN_KERNIGHAN = "lin-kernighan";
+    public static final String BEST = "best";
+
+    private static final int CAPACITY = 1 << 16;
+    private static final Record END = new Record(0, null, 0, 0, 0, 0);
+
+    private final String fileName;
+    private final boolean json;
+    private final long startTime;
+    private final BlockingQueue<Record> records;
+    private final BufferedWriter out;
+    private final Thread writer;
+    private final AtomicLong dropped;
+
+    /**
+     * Constructor. Opens the trace file and starts the thread writing to it.
+     * @param fileName of the trace file.
+     * @throws IOException if the trace file cannot be created.
+     */
+    public Trace(String fileName) throws IOException {
+
+        this.fileName = fileName;
+        this.json = fileName.endsWith(".jsonl") || fileName.endsWith(".json");
+        this.startTime = System.nanoTime();
+        this.records = new ArrayBlockingQueue<Record>(CAPACITY);
+        this.dropped = new AtomicLong();
+        this.out = Files.newBufferedWriter(Paths.get(fileName));
+
+        if(!json){
+            out.write("time_ns,phase,start,length,evaluated,applied");
+            out.newLine();
+        }
+
+        this.writer = new Thread(this::writeRecords, "trace");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Opens the trace file given by the tsp.trace system property, if it is
+     * set.
+     * @return trace, or null if the property is not set or the file cannot
+     *         be created.
+     */
+    public static Trace open(){
+
+        String fileName = System.getProperty("tsp.trace");
+
+        if(fileName == null || fileName.isEmpty()){
+            return null;
+        }
+
+        try {
+            return new Trace(fileName);
+        } catch(IOException e){
+            System.out.println("Trace " + fileName + " could not be created.");
+            return null;
+        }
+    }
+
+    /**
+     * Adds a record to the trace without waiting. If the writer has fallen a
+     * full queue behind, the record is only counted as dropped.
+     * @param phase of the run.
+     * @param start identifier of the start vertex of the tour.
+     * @param length of the tour.
+     * @param evaluated moves evaluated since the last record.
+     * @param applied moves applied since the last record.
+     */
+    public void record(String phase, int start, long length, long evaluated,
+                       long applied){
+
+        Record record = new Record(System.nanoTime() - startTime, phase, start,
+                length, evaluated, applied);
+
+        if(!records.offer(record)){
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the number of records dropped because the queue was full.
+     * @return records dropped.
+     */
+    public long getDropped(){
+
+        return dropped.get();
+    }
+
+    /**
+     * Writes the remaining records and closes the trace file.
+     */
+    public void close(){
+
+        try {
+
+            records.put(END);
+            writer.join();
+
+        } catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+
+        if(dropped.get() > 0){
+            System.out.println("Trace " + fileName + " dropped "
+                    + dropped.get() + " records the writer fell behind on.");
+        }
+    }
+
+    /**
+     * Writes records as they arrive, in batches of every record waiting,
+     * until the end of the trace.
+     */
+    private void writeRecords(){
+
+        ArrayList<Record> batch = new ArrayList<Record>();
+        boolean writing = true;
+        boolean ended = false;
+
+        while(!ended){
+
+            try {
+                batch.add(records.take());
+            } catch(InterruptedException e){
+                continue; // Only the end record stops the writer
+            }
+
+            records.drainTo(batch);
+
+            for(Record record: batch){
+
+                if(record == END){
+                    ended = true;
+                } else if(writing){
+                    writing = write(record);
+                }
+            }
+
+            batch.clear();
+
+            if(writing){
+                writing = flush();
+            }
+        }
+
+        try {
+            out.close();
+        } catch(IOException e){
+            System.out.println("Trace " + fileName + " could not be closed.");
+        }
+    }
+
+    /**
+     * Writes a record in the format of the trace.
+     * @param record to write.
+     * @return true if the record was written and false otherwise.
+     */
+    private boolean write(Record record){
+
+        try {
+
+            if(json){
+                out.write("{\"time_ns\":" + record.time
+                        + ",\"phase\":\"" + record.phase
+                        + "\",\"start\":" + record.start
+                        + ",\"length\":" + record.length
+                        + ",\"evaluated\":" + record.evaluated
+                        + ",\"applied\":" + record.applied + "}");
+            } else {
+                out.write(record.time + "," + record.phase + "," + record.start
+                        + "," + record.length + "," + record.evaluated + ","
+                        + record.applied);
+            }
+
+            out.newLine();
+            return true;
+
+        } catch(IOException e){
+            System.out.println("Trace " + fileName + " could not be written.");
+            return false;
+        }
+    }
+
+    /**
+     * Flushes the written records to the trace file, so it can be followed
+     * while the run goes on.
+     * @return true if the records were flushed and false otherwise.
+     */
+    private boolean flush(){
+
+        try {
+            out.flush();
+            return true;
+        } catch(IOException e){
+            System.out.println("Trace " + fileName + " could not be written.");
+            return false;
+        }
+    }
+
+    /**
+     * One record of the trace.
+     */
+    private static class Record {
+
+        private final long time;
+        private final String phase;
+        private final int start;
+        private final long length;
+        private final long evaluated;
+        private final long applied;
+
+        /**
+         * Constructor. Sets the values of the record.
+         * @param time since the trace was opened in nanoseconds.
+         * @param phase of the run.
+         * @param start identifier of the start vertex of the tour.
+         * @param length of the tour.
+         * @param evaluated moves evaluated.
+         * @param applied moves applied.
+         */
+        private Record(long time, String phase, int start, long length,
+                       long evaluated, long applied){
+
+            this.time = time;
+            this.phase = phase;
+            this.start = start;
+            this.length = length;
+            this.evaluated = evaluated;
+            this.applied = applied;
+        }
+    }
+}
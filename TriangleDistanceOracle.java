@@ -0,0 +1,60 @@
+import java.util.stream.IntStream;
+
+/**
+ * Distance oracle backed by the upper triangle of the distance matrix packed
+ * into a single array. Uses half the memory of the full matrix in exchange
+ * for a little index arithmetic on each query.
+ */
+public class TriangleDistanceOracle extends DistanceOracle {
+
+    private final int[] triangle;
+
+    /**
+     * Constructor. Computes the distance between every pair of distinct
+     * vertices.
+     * @param xs x-coordinates of the vertices.
+     * @param ys y-coordinates of the vertices.
+     */
+    public TriangleDistanceOracle(int[] xs, int[] ys){
+
+        super(xs, ys);
+
+        triangle = new int[(int) ((long) size * (size - 1) / 2)];
+
+        // Each row is independent so they are filled in parallel
+        IntStream.range(0, size).parallel().forEach(i -> {
+            int offset = rowOffset(i);
+            for(int j = i + 1; j < size; j++){
+                triangle[offset + j] = (int) compute(i, j);
+            }
+        });
+    }
+
+    /**
+     * Returns the distance between the two vertices.
+     * @param i index of the first vertex.
+     * @param j index of the second vertex.
+     * @return edge weight between the vertices.
+     */
+    @Override
+    public long distance(int i, int j){
+
+        if(i < j){
+            return triangle[rowOffset(i) + j];
+        } else if(i > j){
+            return triangle[rowOffset(j) + i];
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the offset of a row in the packed triangle, such that the
+     * distance from i to j, with i less than j, is at the offset plus j.
+     * @param i row of the triangle.
+     * @return offset of the row.
+     */
+    private int rowOffset(int i){
+
+        return (int) ((long) i * (2 * size - i - 3) / 2) - 1;
+    }
+}
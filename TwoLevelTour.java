@@ -0,0 +1,427 @@
+/**
+ * A tour kept as a two-level doubly-linked list. The vertices are split into
+ * segments of about the square root of the tour size, each a linked list
+ * with a reversed bit, and the segments form a linked list of their own in
+ * order of travel. A 2-opt move splits at most two segments so that the path
+ * it reverses is made of whole segments, then reverses the order of those
+ * segments and flips their reversed bits, which takes time proportional to
+ * the square root of the tour size however long the path is. The segments
+ * are rebuilt once splitting has doubled their number.
+ */
+public class TwoLevelTour implements Tour {
+
+    private final int size;
+    private final int start;
+    private final int segmentSize;
+    private final int capacity;
+
+    // Vertices, linked in the stored order of their segment
+    private final int[] parent;
+    private final int[] sequence;
+    private final int[] successor;
+    private final int[] predecessor;
+
+    // Segments, linked in order of travel
+    private final int[] first;
+    private final int[] last;
+    private final boolean[] reversed;
+    private final int[] nextSegment;
+    private final int[] prevSegment;
+    private final int[] segmentSizes;
+    private final int[] offsets;
+    private int segments;
+    private int head;
+
+    private final int[] buffer;
+
+    /**
+     * Constructor. Creates the tour from the vertices in order of travel.
+     * @param order of vertex indices in order of travel.
+     */
+    public TwoLevelTour(int[] order){
+
+        this.size = order.length;
+        this.start = size > 0 ? order[0] : -1;
+        this.segmentSize = Math.max(8, (int) Math.sqrt(size));
+        this.capacity = 2 * ((size + segmentSize - 1) / segmentSize) + 4;
+
+        this.parent = new int[size];
+        this.sequence = new int[size];
+        this.successor = new int[size];
+        this.predecessor = new int[size];
+
+        this.first = new int[capacity];
+        this.last = new int[capacity];
+        this.reversed = new boolean[capacity];
+        this.nextSegment = new int[capacity];
+        this.prevSegment = new int[capacity];
+        this.segmentSizes = new int[capacity];
+        this.offsets = new int[capacity];
+
+        this.buffer = new int[Math.max(segmentSize, capacity)];
+
+        build(order);
+    }
+
+    /**
+     * Returns the number of vertices in the tour.
+     * @return size of the tour.
+     */
+    @Override
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Returns the vertex after a vertex in the tour.
+     * @param vertex in the tour.
+     * @return next vertex.
+     */
+    @Override
+    public int next(int vertex){
+
+        int s = parent[vertex];
+
+        if(!reversed[s]){
+            return vertex == last[s] ? headOf(nextSegment[s]) : successor[vertex];
+        }
+        return vertex == first[s] ? headOf(nextSegment[s]) : predecessor[vertex];
+    }
+
+    /**
+     * Returns the vertex before a vertex in the tour.
+     * @param vertex in the tour.
+     * @return previous vertex.
+     */
+    @Override
+    public int prev(int vertex){
+
+        int s = parent[vertex];
+
+        if(!reversed[s]){
+            return vertex == first[s] ? tailOf(prevSegment[s]) : predecessor[vertex];
+        }
+        return vertex == last[s] ? tailOf(prevSegment[s]) : successor[vertex];
+    }
+
+    /**
+     * Checks if b is reached on the way forward through the tour from a to
+     * c, including at either end.
+     * @param a vertex to start from.
+     * @param b vertex to check.
+     * @param c vertex to stop at.
+     * @return true if b is between a and c and false otherwise.
+     */
+    @Override
+    public boolean between(int a, int b, int c){
+
+        int i = position(a);
+        int j = position(b);
+        int k = position(c);
+
+        if(i <= k){
+            return i <= j && j <= k;
+        }
+        return j >= i || j <= k;
+    }
+
+    /**
+     * Replaces the tour edges (a, b) and (c, d) with (a, c) and (b, d), where
+     * b follows a and d follows c in the same direction through the tour.
+     * @param a vertex of the first edge.
+     * @param b vertex after a.
+     * @param c vertex of the second edge.
+     * @param d vertex after c.
+     */
+    @Override
+    public void flip(int a, int b, int c, int d){
+
+        int swap;
+
+        // Read a move made backward through the tour as the same move forward
+        if(next(a) != b){
+            swap = a; a = d; d = swap;
+            swap = b; b = c; c = swap;
+        }
+
+        // Reverse the path from b to c, or the path from d to a if shorter
+        int length = (position(c) - position(b) + size) % size + 1;
+
+        if(length * 2 > size){
+            reverse(d, a);
+        } else {
+            reverse(b, c);
+        }
+    }
+
+    /**
+     * Returns the vertices in order of travel, starting from the vertex the
+     * tour was created with.
+     * @return vertex indices in order of travel.
+     */
+    @Override
+    public int[] toArray(){
+
+        int[] vertices = new int[size];
+        int vertex = start;
+
+        for(int i = 0; i < size; i++){
+            vertices[i] = vertex;
+            vertex = next(vertex);
+        }
+
+        return vertices;
+    }
+
+    /**
+     * Returns the number of vertices before a vertex on the way forward
+     * through the tour from the start of the head segment.
+     * @param vertex in the tour.
+     * @return position of the vertex.
+     */
+    private int position(int vertex){
+
+        int s = parent[vertex];
+
+        if(!reversed[s]){
+            return offsets[s] + sequence[vertex] - sequence[first[s]];
+        }
+        return offsets[s] + sequence[last[s]] - sequence[vertex];
+    }
+
+    /**
+     * Returns the first vertex of a segment in order of travel.
+     * @param s segment.
+     * @return first vertex of the segment.
+     */
+    private int headOf(int s){
+        return reversed[s] ? last[s] : first[s];
+    }
+
+    /**
+     * Returns the last vertex of a segment in order of travel.
+     * @param s segment.
+     * @return last vertex of the segment.
+     */
+    private int tailOf(int s){
+        return reversed[s] ? first[s] : last[s];
+    }
+
+    /**
+     * Reverses the path forward through the tour from x to y, which is not
+     * the whole tour.
+     * @param x first vertex of the path.
+     * @param y last vertex of the path.
+     */
+    private void reverse(int x, int y){
+
+        int s = parent[x];
+
+        // A path inside one segment is reversed within the segment
+        if(parent[y] == s && position(x) <= position(y)){
+            reverseInSegment(s, x, y);
+            return;
+        }
+
+        // Splitting adds up to two segments, so rebuild if there is no room
+        if(segments + 2 > capacity){
+            build(toArray());
+            reverse(x, y);
+            return;
+        }
+
+        splitBefore(x);
+        splitBefore(next(y));
+
+        int from = parent[x];
+        int to = parent[y];
+        int before = prevSegment[from];
+        int after = nextSegment[to];
+
+        // Collect the segments of the path, then link them back in reverse
+        int count = 0;
+
+        for(s = from; ; s = nextSegment[s]){
+            buffer[count++] = s;
+            if(s == to){
+                break;
+            }
+        }
+
+        for(int i = count - 1; i >= 0; i--){
+
+            s = buffer[i];
+            reversed[s] = !reversed[s];
+            nextSegment[before] = s;
+            prevSegment[s] = before;
+            before = s;
+        }
+
+        nextSegment[before] = after;
+        prevSegment[after] = before;
+
+        renumber();
+    }
+
+    /**
+     * Reverses the path forward through the tour from x to y, both in the
+     * given segment, by relinking the vertices of the path in reverse.
+     * @param s segment holding the path.
+     * @param x first vertex of the path.
+     * @param y last vertex of the path.
+     */
+    private void reverseInSegment(int s, int x, int y){
+
+        // Ends of the path in the stored order of the segment
+        int u = reversed[s] ? y : x;
+        int w = reversed[s] ? x : y;
+
+        if(u == first[s] && w == last[s]){ // The whole segment
+            reversed[s] = !reversed[s];
+            return;
+        }
+
+        int before = u == first[s] ? -1 : predecessor[u];
+        int after = w == last[s] ? -1 : successor[w];
+        int base = sequence[u];
+        int length = 0;
+
+        for(int vertex = u; ; vertex = successor[vertex]){
+            buffer[length++] = vertex;
+            if(vertex == w){
+                break;
+            }
+        }
+
+        int vertex;
+
+        for(int i = 0; i < length; i++){
+
+            vertex = buffer[length - 1 - i];
+            sequence[vertex] = base + i;
+            predecessor[vertex] = i == 0 ? before : buffer[length - i];
+            successor[vertex] = i == length - 1 ? after : buffer[length - 2 - i];
+        }
+
+        if(before == -1){
+            first[s] = w;
+        } else {
+            successor[before] = w;
+        }
+
+        if(after == -1){
+            last[s] = u;
+        } else {
+            predecessor[after] = u;
+        }
+    }
+
+    /**
+     * Splits the segment of a vertex so that the vertex is the first of its
+     * segment in order of travel. The smaller part of the segment is moved
+     * to a new segment.
+     * @param vertex to start a segment at.
+     */
+    private void splitBefore(int vertex){
+
+        int s = parent[vertex];
+
+        if(vertex == headOf(s)){
+            return;
+        }
+
+        // The stored order of the segment splits into first..p and q..last
+        int p = reversed[s] ? vertex : predecessor[vertex];
+        int q = reversed[s] ? successor[vertex] : vertex;
+        int leftSize = sequence[p] - sequence[first[s]] + 1;
+        boolean moveLeft = leftSize * 2 < segmentSizes[s];
+
+        int t = segments++;
+        reversed[t] = reversed[s];
+
+        if(moveLeft){
+            first[t] = first[s];
+            last[t] = p;
+            first[s] = q;
+            segmentSizes[t] = leftSize;
+        } else {
+            first[t] = q;
+            last[t] = last[s];
+            last[s] = p;
+            segmentSizes[t] = segmentSizes[s] - leftSize;
+        }
+
+        segmentSizes[s] -= segmentSizes[t];
+
+        for(int u = first[t]; ; u = successor[u]){
+            parent[u] = t;
+            if(u == last[t]){
+                break;
+            }
+        }
+
+        // The left part comes first in order of travel unless reversed
+        if(moveLeft != reversed[s]){
+            nextSegment[t] = s;
+            prevSegment[t] = prevSegment[s];
+        } else {
+            prevSegment[t] = s;
+            nextSegment[t] = nextSegment[s];
+        }
+
+        nextSegment[prevSegment[t]] = t;
+        prevSegment[nextSegment[t]] = t;
+    }
+
+    /**
+     * Builds the segments from the vertices in order of travel.
+     * @param order of vertex indices in order of travel.
+     */
+    private void build(int[] order){
+
+        segments = 0;
+        head = 0;
+
+        for(int lo = 0; lo < size; lo += segmentSize){
+
+            int hi = Math.min(size, lo + segmentSize);
+            int s = segments++;
+
+            for(int i = lo; i < hi; i++){
+
+                parent[order[i]] = s;
+                sequence[order[i]] = i - lo;
+                predecessor[order[i]] = i > lo ? order[i - 1] : -1;
+                successor[order[i]] = i < hi - 1 ? order[i + 1] : -1;
+            }
+
+            first[s] = order[lo];
+            last[s] = order[hi - 1];
+            reversed[s] = false;
+            segmentSizes[s] = hi - lo;
+        }
+
+        for(int s = 0; s < segments; s++){
+            nextSegment[s] = (s + 1) % segments;
+            prevSegment[s] = (s - 1 + segments) % segments;
+        }
+
+        renumber();
+    }
+
+    /**
+     * Numbers the vertices before each segment in order of travel from the
+     * head segment.
+     */
+    private void renumber(){
+
+        int offset = 0;
+        int s = head;
+
+        do {
+            offsets[s] = offset;
+            offset += segmentSizes[s];
+            s = nextSegment[s];
+        } while(s != head);
+    }
+}
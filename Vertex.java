@@ -7,6 +7,7 @@
 public class Vertex implements Comparable<Vertex>{
 
     private int identifier;
+    private int index;
     private Point point;
     private Enum color;
     private Vertex predecessor;
@@ -21,6 +22,7 @@ public class Vertex implements Comparable<Vertex>{
     public Vertex(int identifier, Point point) {
 
         this.identifier = identifier;
+        this.index = -1;
         this.point = point;
         this.predecessor = null;
         this.color = Color.WHITE;
@@ -35,6 +37,22 @@ public class Vertex implements Comparable<Vertex>{
         return identifier;
     }
 
+    /**
+     * Returns the vertex's position in the graph it belongs to.
+     * @return vertex index, or -1 if it is not in a graph.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Sets the vertex's position in the graph it belongs to.
+     * @param index of the vertex in the graph.
+     */
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
     /**
      * Returns the vertex's x coordinate.
      * @return vertex's coordinate as a point
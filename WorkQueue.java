@@ -0,0 +1,68 @@
+import java.util.Arrays;
+
+/**
+ * First in, first out queue of the vertices waiting to be searched for an
+ * improving move. A vertex is in the queue at most once, and leaving the
+ * queue without being offered again stands for its don't-look bit.
+ */
+public class WorkQueue {
+
+    private final int[] vertices;
+    private final boolean[] queued;
+    private int head;
+    private int size;
+
+    /**
+     * Constructor. Starts with every vertex of the tour in the queue, in
+     * tour order.
+     * @param tour of vertex indices.
+     */
+    public WorkQueue(int[] tour){
+
+        vertices = tour.clone();
+        queued = new boolean[tour.length];
+        head = 0;
+        size = tour.length;
+
+        Arrays.fill(queued, true);
+    }
+
+    /**
+     * Returns whether the queue is empty or not.
+     * @return true if no vertex is waiting and false otherwise.
+     */
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    /**
+     * Removes and returns the vertex at the head of the queue.
+     * @return next vertex to search from.
+     */
+    public int poll(){
+
+        int vertex = vertices[head];
+
+        head = (head + 1) % vertices.length;
+        size--;
+        queued[vertex] = false;
+
+        return vertex;
+    }
+
+    /**
+     * Adds the vertices that are not already waiting to the queue.
+     * @param offered vertices to search from again.
+     */
+    public void offer(int... offered){
+
+        for(int vertex: offered){
+
+            if(!queued[vertex]){
+                vertices[(head + size) % vertices.length] = vertex;
+                queued[vertex] = true;
+                size++;
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package tsp;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tsp.benchmarks.Datasets;
+
+/**
+ * Benchmarks 2-opt tour improvement of the nearest neighbor tour of a
+ * dataset, with every pair of tour edges as a candidate move and with only
+ * moves between near neighbors. Each operation improves a fresh copy of the
+ * same tour until no improving move is left, so the time per operation is
+ * the time of a whole 2-opt improvement. Every pass of the full 2-opt
+ * checks every pair of edges, so its datasets stop at 2000 cities to keep a
+ * run short, while the neighbor list 2-opt, which is meant for large
+ * graphs, also runs on the largest files and on 100000 cities. The
+ * benchmark is in the tsp package to reach the package private improvement
+ * of a given tour.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class TwoOptBenchmark {
+
+    // Near neighbors of each city the neighbor list 2-opt searches
+    private static final int NEIGHBOR_LIST_SIZE = 10;
+
+    /**
+     * Tour of a dataset small enough for the full 2-opt.
+     */
+    @State(Scope.Thread)
+    public static class FullState {
+
+        @Param({"test-input-1", "test-input-2", "test-input-3",
+                "test-input-4", "test-input-5", "test-input-6",
+                "tsp_example_1", "tsp_example_2", "uniform-1000",
+                "clustered-1000"})
+        public String dataset;
+
+        private int[] start;
+        private NearestNeighbor twoOpt;
+
+        /**
+         * Reads the dataset and builds the nearest neighbor tour to improve.
+         */
+        @Setup
+        public void setup(){
+
+            Graph graph = Datasets.graph(dataset);
+            start = nearestNeighborTour(graph);
+
+            twoOpt = new NearestNeighbor(graph);
+            twoOpt.setAlgorithmOptions(false, true);
+        }
+    }
+
+    /**
+     * Tour of a dataset for the neighbor list 2-opt, up to large graphs.
+     */
+    @State(Scope.Thread)
+    public static class NeighborListState {
+
+        @Param({"test-input-1", "test-input-2", "test-input-3",
+                "test-input-4", "test-input-5", "test-input-6",
+                "test-input-7", "tsp_example_1", "tsp_example_2",
+                "tsp_example_3", "uniform-1000", "clustered-1000",
+                "uniform-100000", "clustered-100000"})
+        public String dataset;
+
+        private int[] start;
+        private NearestNeighbor neighborListTwoOpt;
+
+        /**
+         * Reads the dataset, builds the nearest neighbor tour to improve and
+         * finds the neighbor lists before they are measured.
+         */
+        @Setup
+        public void setup(){
+
+            Graph graph = Datasets.graph(dataset);
+            start = nearestNeighborTour(graph);
+
+            neighborListTwoOpt = new NearestNeighbor(graph);
+            neighborListTwoOpt.setAlgorithmOptions(false, true);
+            neighborListTwoOpt.setNeighborListSize(NEIGHBOR_LIST_SIZE);
+
+            graph.getNeighborLists(NEIGHBOR_LIST_SIZE);
+        }
+    }
+
+    /**
+     * 2-opt with every pair of tour edges as a candidate move.
+     * @param state tour to improve.
+     * @return distance of the improved tour.
+     */
+    @Benchmark
+    public long twoOptNeighborSwap(FullState state){
+
+        return state.twoOpt.improveTour(state.start.clone());
+    }
+
+    /**
+     * 2-opt with only moves between near neighbors.
+     * @param state tour to improve.
+     * @return distance of the improved tour.
+     */
+    @Benchmark
+    public long twoOptNeighborListSwap(NeighborListState state){
+
+        return state.neighborListTwoOpt.improveTour(state.start.clone());
+    }
+
+    /**
+     * Builds the nearest neighbor tour of a graph.
+     * @param graph to build the tour of.
+     * @return vertex indices of the tour.
+     */
+    private static int[] nearestNeighborTour(Graph graph){
+
+        NearestNeighbor nearestNeighbor = new NearestNeighbor(graph);
+        nearestNeighbor.setAlgorithmOptions(false, false);
+        nearestNeighbor.execute();
+
+        ArrayList<Vertex> tour = nearestNeighbor.getTour();
+        int[] start = new int[tour.size()];
+
+        for(int i = 0; i < start.length; i++){
+            start[i] = tour.get(i).getIndex();
+        }
+
+        return start;
+    }
+}
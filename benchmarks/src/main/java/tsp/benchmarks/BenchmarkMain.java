@@ -0,0 +1,39 @@
+package tsp.benchmarks;
+
+import java.util.Arrays;
+
+/**
+ * Runs the benchmarks with the JMH command line, adding the gc profiler so
+ * the allocation rate is reported with the time of each operation, unless
+ * other profilers are given. For example, to run only the 2-opt benchmarks on
+ * one dataset:
+ * java -jar benchmarks.jar TwoOpt -p dataset=test-input-5
+ */
+public class BenchmarkMain {
+
+    /**
+     * Not created, only runs the benchmarks.
+     */
+    private BenchmarkMain(){
+    }
+
+    /**
+     * Runs the benchmarks.
+     * @param args JMH command line arguments.
+     * @throws Exception if the benchmarks cannot be run.
+     */
+    public static void main(String[] args) throws Exception {
+
+        String[] options = args;
+
+        if(!Arrays.asList(args).contains("-prof")){
+
+            options = new String[args.length + 2];
+            options[0] = "-prof";
+            options[1] = "gc";
+            System.arraycopy(args, 0, options, 2, args.length);
+        }
+
+        org.openjdk.jmh.Main.main(options);
+    }
+}
@@ -0,0 +1,168 @@
+package tsp.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Random;
+
+import tsp.FileInputProcessor;
+import tsp.Graph;
+
+/**
+ * Location files the benchmarks run on. A dataset is either one of the
+ * bundled files, named without the .txt extension, such as test-input-1 or
+ * tsp_example_3, or a synthetic instance named uniform-n or clustered-n for
+ * n cities spread uniformly or in clusters over a square. Bundled files are
+ * looked for in the directory given by the tsp.data system property, or else
+ * in the current directory or the one above it. Synthetic instances are
+ * generated from a fixed seed and written to a temporary file, so every run
+ * benchmarks the same cities.
+ */
+public class Datasets {
+
+    // Side of the square synthetic cities are placed in
+    private static final int SIDE = 1000000;
+
+    private static final HashMap<String, File> files = new HashMap<String, File>();
+
+    /**
+     * Not created, only holds the dataset functions.
+     */
+    private Datasets(){
+    }
+
+    /**
+     * Returns the location file of a dataset, generating it the first time a
+     * synthetic dataset is asked for.
+     * @param name of the dataset.
+     * @return location file of the dataset.
+     */
+    public static synchronized File file(String name){
+
+        File file = files.get(name);
+
+        if(file == null){
+
+            if(name.startsWith("uniform-") || name.startsWith("clustered-")){
+                file = generate(name);
+            } else {
+                file = new File(dataDirectory(), name + ".txt");
+            }
+
+            if(!file.isFile()){
+                throw new IllegalArgumentException("Dataset " + name
+                        + " could not be found at " + file.getPath());
+            }
+            files.put(name, file);
+        }
+
+        return file;
+    }
+
+    /**
+     * Reads a dataset into a new graph.
+     * @param name of the dataset.
+     * @return graph of the cities in the dataset.
+     */
+    public static Graph graph(String name){
+
+        FileInputProcessor input = new FileInputProcessor(file(name).getPath());
+        Graph graph = new Graph();
+
+        if(!input.setup()){
+            throw new IllegalArgumentException("Dataset " + name
+                    + " could not be opened.");
+        }
+
+        graph.fillGraphContentsFromFile(input);
+        input.teardown();
+
+        return graph;
+    }
+
+    /**
+     * Returns the directory holding the bundled location files.
+     * @return bundled data directory.
+     */
+    private static File dataDirectory(){
+
+        String directory = System.getProperty("tsp.data");
+
+        if(directory != null){
+            return new File(directory);
+        }
+
+        if(new File("test-input-1.txt").isFile()){
+            return new File(".");
+        }
+        return new File("..");
+    }
+
+    /**
+     * Generates a synthetic dataset into a temporary location file.
+     * @param name of the dataset, uniform-n or clustered-n.
+     * @return generated location file.
+     */
+    private static File generate(String name){
+
+        boolean clustered = name.startsWith("clustered-");
+        int cities = Integer.parseInt(name.substring(name.indexOf('-') + 1));
+        Random random = new Random(name.hashCode());
+
+        // Clusters of about 100 cities each, spread with a normal distribution
+        int clusters = Math.max(1, cities / 100);
+        int[] centerXs = new int[clusters];
+        int[] centerYs = new int[clusters];
+        double spread = SIDE / (4 * Math.sqrt(clusters));
+
+        for(int i = 0; i < clusters; i++){
+            centerXs[i] = random.nextInt(SIDE);
+            centerYs[i] = random.nextInt(SIDE);
+        }
+
+        try {
+
+            File file = File.createTempFile(name + "-", ".txt");
+            file.deleteOnExit();
+
+            try(BufferedWriter out = Files.newBufferedWriter(file.toPath())){
+
+                int x, y, cluster;
+
+                for(int i = 0; i < cities; i++){
+
+                    if(clustered){
+                        cluster = random.nextInt(clusters);
+                        x = clamp(centerXs[cluster] + random.nextGaussian() * spread);
+                        y = clamp(centerYs[cluster] + random.nextGaussian() * spread);
+                    } else {
+                        x = random.nextInt(SIDE);
+                        y = random.nextInt(SIDE);
+                    }
+
+                    out.write(i + " " + x + " " + y);
+                    out.newLine();
+                }
+            }
+
+            return file;
+
+        } catch(IOException e){
+            throw new UncheckedIOException("Dataset " + name
+                    + " could not be generated.", e);
+        }
+    }
+
+    /**
+     * Rounds a coordinate and keeps it inside the square.
+     * @param coordinate to keep inside the square.
+     * @return coordinate between zero and the side of the square.
+     */
+    private static int clamp(double coordinate){
+
+        return (int) Math.max(0, Math.min(SIDE - 1, Math.round(coordinate)));
+    }
+}
@@ -0,0 +1,117 @@
+package tsp.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tsp.DistanceOracle;
+import tsp.Graph;
+import tsp.Point;
+
+/**
+ * Benchmarks the distance between two cities, computed from their points,
+ * from their coordinates and looked up from the distance oracle of the
+ * graph. Each operation is one distance between a pair of cities picked at
+ * random, so the oracle lookups are measured with the cache misses a tour
+ * improvement sees.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistanceBenchmark {
+
+    // Number of random city pairs, a power of two
+    private static final int PAIRS = 1 << 12;
+
+    @Param({"test-input-1", "test-input-2", "test-input-3", "test-input-4",
+            "test-input-5", "test-input-6", "test-input-7", "tsp_example_1",
+            "tsp_example_2", "tsp_example_3", "uniform-100000",
+            "clustered-100000"})
+    public String dataset;
+
+    private DistanceOracle distances;
+    private Point[] points;
+    private int[] xs;
+    private int[] ys;
+    private int[] firsts;
+    private int[] seconds;
+    private int pair;
+
+    /**
+     * Reads the dataset and picks the random city pairs.
+     */
+    @Setup
+    public void setup(){
+
+        Graph graph = Datasets.graph(dataset);
+        Random random = new Random(42);
+
+        distances = graph.getDistanceOracle();
+        points = new Point[graph.size()];
+        xs = new int[graph.size()];
+        ys = new int[graph.size()];
+        firsts = new int[PAIRS];
+        seconds = new int[PAIRS];
+
+        for(int i = 0; i < graph.size(); i++){
+            xs[i] = graph.getX(i);
+            ys[i] = graph.getY(i);
+            points[i] = new Point(xs[i], ys[i]);
+        }
+
+        for(int i = 0; i < PAIRS; i++){
+            firsts[i] = random.nextInt(graph.size());
+            seconds[i] = random.nextInt(graph.size());
+        }
+    }
+
+    /**
+     * Distance between the points of two cities.
+     * @return distance between the next pair of cities.
+     */
+    @Benchmark
+    public long pointDistance(){
+
+        int i = pair++ & (PAIRS - 1);
+        return points[firsts[i]].distance(points[seconds[i]]);
+    }
+
+    /**
+     * Distance between the coordinates of two cities.
+     * @return distance between the next pair of cities.
+     */
+    @Benchmark
+    public long coordinateDistance(){
+
+        int i = pair++ & (PAIRS - 1);
+        int a = firsts[i];
+        int b = seconds[i];
+
+        return Point.distance(xs[a], ys[a], xs[b], ys[b]);
+    }
+
+    /**
+     * Distance between two cities looked up from the distance oracle.
+     * @return distance between the next pair of cities.
+     */
+    @Benchmark
+    public long oracleDistance(){
+
+        int i = pair++ & (PAIRS - 1);
+        return distances.distance(firsts[i], seconds[i]);
+    }
+}
@@ -0,0 +1,116 @@
+package tsp.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tsp.Color;
+import tsp.Graph;
+import tsp.KDTree;
+import tsp.Vertex;
+
+/**
+ * Benchmarks finding the nearest unvisited city, the step repeated for every
+ * city of a nearest neighbor tour, by the linear scan of the graph and by
+ * the k-d tree the tours are built with. Half of the cities, picked at
+ * random, are visited, as they are halfway through building a tour, and each
+ * operation searches from one of the visited cities.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NearestNeighborScanBenchmark {
+
+    @Param({"test-input-1", "test-input-2", "test-input-3", "test-input-4",
+            "test-input-5", "test-input-6", "test-input-7", "tsp_example_1",
+            "tsp_example_2", "tsp_example_3", "uniform-100000",
+            "clustered-100000"})
+    public String dataset;
+
+    private Graph graph;
+    private KDTree unvisited;
+    private int[] sources;
+    private int source;
+
+    /**
+     * Reads the dataset and visits half of its cities.
+     */
+    @Setup
+    public void setup(){
+
+        graph = Datasets.graph(dataset);
+        unvisited = graph.getSpatialIndex().copy();
+
+        Random random = new Random(42);
+        int[] order = new int[graph.size()];
+
+        for(int i = 0; i < order.length; i++){
+            order[i] = i;
+        }
+
+        // Shuffle the cities, then visit the first half and search from them
+        for(int i = order.length - 1; i > 0; i--){
+
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+
+        int visited = order.length / 2;
+
+        for(int i = 0; i < visited; i++){
+            graph.getVertex(order[i]).setColor(Color.BLACK);
+            unvisited.remove(order[i]);
+        }
+
+        sources = new int[Math.max(visited, 1)];
+        System.arraycopy(order, 0, sources, 0, sources.length);
+    }
+
+    /**
+     * Nearest unvisited city found by scanning every city in the graph.
+     * @return nearest unvisited city.
+     */
+    @Benchmark
+    public Vertex minimumEdgeScan(){
+
+        return graph.getMinimumEdge(graph.getVertex(nextSource()));
+    }
+
+    /**
+     * Nearest unvisited city found with the k-d tree.
+     * @return index of the nearest unvisited city.
+     */
+    @Benchmark
+    public int spatialIndexNearest(){
+
+        return unvisited.nearest(nextSource());
+    }
+
+    /**
+     * Returns the next city to search from.
+     * @return index of a visited city.
+     */
+    private int nextSource(){
+
+        if(source == sources.length){
+            source = 0;
+        }
+        return sources[source++];
+    }
+}
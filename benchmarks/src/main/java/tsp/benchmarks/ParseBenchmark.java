@@ -0,0 +1,68 @@
+package tsp.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tsp.FileInputProcessor;
+
+/**
+ * Benchmarks reading the cities of a location file, from opening the file to
+ * closing it. The file is in the page cache after the first read, so the
+ * time is that of parsing rather than of the disk.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Param({"test-input-1", "test-input-2", "test-input-3", "test-input-4",
+            "test-input-5", "test-input-6", "test-input-7", "tsp_example_1",
+            "tsp_example_2", "tsp_example_3", "uniform-1000000",
+            "clustered-1000000"})
+    public String dataset;
+
+    private String fileName;
+
+    /**
+     * Finds the location file of the dataset, generating it if needed.
+     */
+    @Setup
+    public void setup(){
+
+        fileName = Datasets.file(dataset).getPath();
+    }
+
+    /**
+     * Reads every city in the location file.
+     * @return number of cities read.
+     */
+    @Benchmark
+    public int readCities(){
+
+        FileInputProcessor input = new FileInputProcessor(fileName);
+
+        if(!input.setup()){
+            throw new IllegalStateException("File " + fileName
+                    + " could not be opened.");
+        }
+
+        int cities = input.readCities();
+        input.teardown();
+
+        return cities;
+    }
+}
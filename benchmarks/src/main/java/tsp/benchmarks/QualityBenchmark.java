@@ -0,0 +1,467 @@
+package tsp.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.OptionalDouble;
+import java.util.function.Supplier;
+import java.util.stream.LongStream;
+
+import tsp.Graph;
+import tsp.Main;
+import tsp.TSP;
+
+/**
+ * Runs every TSP algorithm on every dataset under each of a set of time
+ * budgets and writes a table of the tour quality against the time taken, as
+ * a CSV file and a Markdown file. Each run is repeated, after warm-up runs
+ * that are not counted, and the table gives for each algorithm, dataset and
+ * budget the best and mean tour length, its standard deviation, the mean
+ * ratio to the optimal tour length where it is known, the mean time to the
+ * first and the best tour and the peak heap use. Runs that found no tour
+ * are left out of the times, which are given as - when no run found one.
+ *
+ * Given the table of an earlier build as a baseline, the runner fails with
+ * exit status 1 when a mean tour length is longer than the baseline by more
+ * than the tolerance, so it can be used to check a build before deploying
+ * it. Settings are given in the form NAME-value, as in the application:
+ *
+ *      BUDGETS-seconds,...     time budgets, 1,5 by default
+ *      WARMUP-count            runs before the counted runs, 1 by default
+ *      REPEATS-count           counted runs, 3 by default
+ *      ALGORITHMS-name,...     algorithms, every algorithm by default
+ *      DATASETS-name,...       datasets, every bundled file by default
+ *      OUTPUT-name             name of the table files, quality by default
+ *      BASELINE-file.csv       table of an earlier build to compare with
+ *      TOLERANCE-percent       longer mean tour length allowed, 1 by default
+ *
+ * For example:
+ * java -cp benchmarks.jar tsp.benchmarks.QualityBenchmark BUDGETS-1,10
+ */
+public class QualityBenchmark {
+
+    private static final String[] BUNDLED_DATASETS = {"test-input-1",
+            "test-input-2", "test-input-3", "test-input-4", "test-input-5",
+            "test-input-6", "test-input-7", "tsp_example_1", "tsp_example_2",
+            "tsp_example_3"};
+
+    // Optimal tour lengths of the example files given in the README
+    private static final HashMap<String, Long> OPTIMAL = new HashMap<String, Long>();
+
+    static {
+        OPTIMAL.put("tsp_example_1", 108159L);
+        OPTIMAL.put("tsp_example_2", 2579L);
+        OPTIMAL.put("tsp_example_3", 1573804L);
+    }
+
+    private static final String HEADER = "dataset,cities,algorithm,budget_s,"
+            + "runs,best_length,mean_length,stdev_length,ratio_to_optimal,"
+            + "first_solution_ms,best_solution_ms,run_ms,peak_heap_mb";
+
+    // Time to a solution of a run that found none, left out of the means
+    private static final long NO_TIME = -1;
+
+    /**
+     * Not created, only runs the benchmark.
+     */
+    private QualityBenchmark(){
+    }
+
+    /**
+     * Runs the benchmark with the given settings.
+     * @param args settings in the form NAME-value.
+     * @throws IOException if the table files cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+
+        long[] budgets = longs(setting(args, "BUDGETS", "1,5"));
+        int warmup = Integer.parseInt(setting(args, "WARMUP", "1"));
+        int repeats = Math.max(1, Integer.parseInt(setting(args, "REPEATS", "3")));
+        String[] algorithms = list(setting(args, "ALGORITHMS",
+                String.join(",", Main.getAlgorithmNames())));
+        String[] datasets = list(setting(args, "DATASETS",
+                String.join(",", BUNDLED_DATASETS)));
+        String output = setting(args, "OUTPUT", "quality");
+        String baseline = setting(args, "BASELINE", null);
+        double tolerance = Double.parseDouble(setting(args, "TOLERANCE", "1")) / 100;
+
+        ArrayList<Result> results = new ArrayList<Result>();
+
+        for(String dataset: datasets){
+
+            Graph graph = quietly(() -> Datasets.graph(dataset));
+
+            for(String algorithm: algorithms){
+                for(long budget: budgets){
+
+                    Result result = new Result(dataset, graph.size(), algorithm, budget);
+
+                    for(int run = 0; run < warmup + repeats; run++){
+
+                        Run measured = run(graph, dataset, algorithm, budget);
+
+                        if(run >= warmup){
+                            result.add(measured);
+                        }
+                    }
+
+                    results.add(result);
+                    System.out.println(result.toMarkdown());
+                }
+            }
+        }
+
+        writeCsv(output + ".csv", results);
+        writeMarkdown(output + ".md", results);
+
+        System.out.println("Results written to " + output + ".csv and "
+                + output + ".md");
+
+        if(baseline != null && !compare(baseline, results, tolerance)){
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs an algorithm once on a dataset, with its console output hidden.
+     * @param graph of the dataset.
+     * @param dataset name.
+     * @param algorithm name, as given to the application.
+     * @param budget maximum run time in seconds.
+     * @return tour length, times and heap use of the run.
+     */
+    private static Run run(Graph graph, String dataset, String algorithm, long budget){
+
+        String[] options = {Datasets.file(dataset).getPath(), algorithm,
+                "MTS-" + budget, "NONE"};
+
+        List<MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans();
+
+        System.gc();
+
+        for(MemoryPoolMXBean pool: pools){
+            pool.resetPeakUsage();
+        }
+
+        Run run = new Run();
+
+        quietly(() -> {
+
+            TSP tsp = Main.createAlgorithm(graph, options);
+            long start = System.nanoTime();
+
+            tsp.execute();
+
+            run.time = System.nanoTime() - start;
+            run.length = tsp.getDistance();
+            run.firstSolutionTime = since(tsp.getFirstSolutionTime(), start);
+            run.bestSolutionTime = since(tsp.getBestSolutionTime(), start);
+            return run;
+        });
+
+        for(MemoryPoolMXBean pool: pools){
+            if(pool.getType() == MemoryType.HEAP){
+                run.peakHeap += pool.getPeakUsage().getUsed();
+            }
+        }
+
+        return run;
+    }
+
+    /**
+     * Returns the time from the start of a run to a solution.
+     * @param time of the solution, or 0 if the run found none.
+     * @param start of the run.
+     * @return time to the solution in nanoseconds, or NO_TIME if none.
+     */
+    private static long since(long time, long start){
+
+        return time == 0 ? NO_TIME : time - start;
+    }
+
+    /**
+     * Writes the results as a CSV file.
+     * @param fileName of the CSV file.
+     * @param results to write.
+     * @throws IOException if the file cannot be written.
+     */
+    private static void writeCsv(String fileName, ArrayList<Result> results)
+            throws IOException {
+
+        try(PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(fileName)))){
+
+            out.println(HEADER);
+
+            for(Result result: results){
+                out.println(result.toCsv());
+            }
+        }
+    }
+
+    /**
+     * Writes the results as a Markdown table.
+     * @param fileName of the Markdown file.
+     * @param results to write.
+     * @throws IOException if the file cannot be written.
+     */
+    private static void writeMarkdown(String fileName, ArrayList<Result> results)
+            throws IOException {
+
+        try(PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(fileName)))){
+
+            String[] columns = HEADER.split(",");
+            String[] rule = new String[columns.length];
+            Arrays.fill(rule, "---");
+
+            out.println("| " + String.join(" | ", columns) + " |");
+            out.println("| " + String.join(" | ", rule) + " |");
+
+            for(Result result: results){
+                out.println(result.toMarkdown());
+            }
+        }
+    }
+
+    /**
+     * Compares the mean tour lengths with those of a baseline table and
+     * prints every one that is longer by more than the tolerance.
+     * @param fileName of the baseline CSV file.
+     * @param results to compare.
+     * @param tolerance fraction of the baseline length allowed above it.
+     * @return true if no mean tour length is longer than allowed.
+     * @throws IOException if the baseline cannot be read.
+     */
+    private static boolean compare(String fileName, ArrayList<Result> results,
+                                   double tolerance) throws IOException {
+
+        HashMap<String, Double> baseline = new HashMap<String, Double>();
+
+        try(BufferedReader in = Files.newBufferedReader(Paths.get(fileName))){
+
+            String line = in.readLine(); // Skip the header
+
+            while((line = in.readLine()) != null){
+
+                String[] fields = line.split(",");
+
+                if(fields.length == HEADER.split(",").length){
+                    baseline.put(fields[0] + "," + fields[2] + "," + fields[3],
+                            Double.parseDouble(fields[6]));
+                }
+            }
+        }
+
+        boolean passed = true;
+
+        for(Result result: results){
+
+            Double length = baseline.get(result.dataset + "," + result.algorithm
+                    + "," + result.budget);
+
+            if(length != null && result.meanLength() > length * (1 + tolerance)){
+
+                System.out.println(String.format(Locale.ROOT,
+                        "REGRESSION %s %s %ds: mean length %.1f, baseline %.1f",
+                        result.dataset, result.algorithm, result.budget,
+                        result.meanLength(), length));
+                passed = false;
+            }
+        }
+
+        System.out.println(passed ? "No regressions against " + fileName
+                : "Regressions against " + fileName);
+
+        return passed;
+    }
+
+    /**
+     * Runs a task with the console output hidden, as the algorithms print
+     * every improvement they find.
+     * @param task to run.
+     * @param <T> type of the task result.
+     * @return result of the task.
+     */
+    private static <T> T quietly(Supplier<T> task){
+
+        PrintStream console = System.out;
+
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        try {
+            return task.get();
+        } finally {
+            System.setOut(console);
+        }
+    }
+
+    /**
+     * Returns the value of a setting in the form NAME-value.
+     * @param args settings.
+     * @param name of the setting.
+     * @param defaultValue to use if the setting is not given.
+     * @return value of the setting.
+     */
+    private static String setting(String[] args, String name, String defaultValue){
+
+        for(String arg: args){
+            if(arg.startsWith(name + "-")){
+                return arg.substring(name.length() + 1);
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Splits a comma separated setting.
+     * @param value of the setting.
+     * @return values in the setting.
+     */
+    private static String[] list(String value){
+
+        return value.split(",");
+    }
+
+    /**
+     * Splits a comma separated setting of numbers.
+     * @param value of the setting.
+     * @return numbers in the setting.
+     */
+    private static long[] longs(String value){
+
+        return Arrays.stream(list(value)).mapToLong(Long::parseLong).toArray();
+    }
+
+    /**
+     * Tour length, times and heap use of one run.
+     */
+    private static class Run {
+
+        private long length;
+        private long time;
+        private long firstSolutionTime;
+        private long bestSolutionTime;
+        private long peakHeap;
+    }
+
+    /**
+     * Runs of one algorithm on one dataset under one time budget.
+     */
+    private static class Result {
+
+        private final String dataset;
+        private final int cities;
+        private final String algorithm;
+        private final long budget;
+        private final ArrayList<Run> runs;
+
+        /**
+         * Constructor. Creates the result with no runs.
+         * @param dataset name.
+         * @param cities in the dataset.
+         * @param algorithm name.
+         * @param budget maximum run time in seconds.
+         */
+        private Result(String dataset, int cities, String algorithm, long budget){
+
+            this.dataset = dataset;
+            this.cities = cities;
+            this.algorithm = algorithm;
+            this.budget = budget;
+            this.runs = new ArrayList<Run>();
+        }
+
+        /**
+         * Adds a counted run.
+         * @param run to add.
+         */
+        private void add(Run run){
+            runs.add(run);
+        }
+
+        /**
+         * Returns the mean tour length of the runs.
+         * @return mean tour length.
+         */
+        private double meanLength(){
+
+            return runs.stream().mapToLong(run -> run.length).average().orElse(0);
+        }
+
+        /**
+         * Returns the values of the table row.
+         * @return formatted values in the order of the header.
+         */
+        private String[] values(){
+
+            double mean = meanLength();
+            double variance = runs.stream().mapToDouble(run
+                    -> (run.length - mean) * (run.length - mean)).sum()
+                    / Math.max(1, runs.size() - 1);
+            Long optimal = OPTIMAL.get(dataset);
+
+            return new String[]{dataset, Integer.toString(cities), algorithm,
+                    Long.toString(budget), Integer.toString(runs.size()),
+                    Long.toString(runs.stream().mapToLong(run -> run.length).min().orElse(0)),
+                    format(mean), format(Math.sqrt(variance)),
+                    optimal == null ? "" : String.format(Locale.ROOT, "%.4f", mean / optimal),
+                    milliseconds(runs.stream().mapToLong(run -> run.firstSolutionTime)),
+                    milliseconds(runs.stream().mapToLong(run -> run.bestSolutionTime)),
+                    milliseconds(runs.stream().mapToLong(run -> run.time)),
+                    format(runs.stream().mapToLong(run -> run.peakHeap).max().orElse(0)
+                            / (1024.0 * 1024.0))};
+        }
+
+        /**
+         * Returns the result as a CSV row.
+         * @return CSV row.
+         */
+        private String toCsv(){
+            return String.join(",", values());
+        }
+
+        /**
+         * Returns the result as a Markdown table row.
+         * @return Markdown row.
+         */
+        private String toMarkdown(){
+            return "| " + String.join(" | ", values()) + " |";
+        }
+
+        /**
+         * Returns the mean of times in milliseconds, leaving out the runs
+         * without a time.
+         * @param times in nanoseconds, NO_TIME for none.
+         * @return formatted mean time in milliseconds, or - if no run has a
+         * time.
+         */
+        private static String milliseconds(LongStream times){
+
+            OptionalDouble mean = times.filter(time -> time != NO_TIME)
+                    .average();
+
+            return mean.isPresent() ? format(mean.getAsDouble() / 1e6) : "-";
+        }
+
+        /**
+         * Formats a number with one decimal place.
+         * @param value to format.
+         * @return formatted value.
+         */
+        private static String format(double value){
+
+            return String.format(Locale.ROOT, "%.1f", value);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks the nearest neighbor queries of the k-d tree against the linear
+ * scan of the graph, which the nearest neighbor algorithm used before the
+ * tree. The cities sit on a grid, some of them twice, so most queries have
+ * several remaining cities at the same distance, and the tree must break
+ * the ties by the lowest index as the scan does.
+ */
+public class KDTreeTest {
+
+    private static final int SIDE = 24;
+    private static final int SPACING = 3;
+    private static final int SEED = 3;
+
+    @TempDir
+    Path folder;
+
+    /**
+     * Visits every city in a random order, as the nearest neighbor algorithm
+     * removes them, and compares the nearest remaining city of each visited
+     * city and of a random one. The tree is then reset and visited again.
+     * @throws IOException if the grid file cannot be written.
+     */
+    @Test
+    public void nearestMatchesLinearScanOnGrid() throws IOException {
+
+        Random random = new Random(SEED);
+        Graph graph = new Graph();
+        graph.fillGraphContentsFromFile(new FileInputProcessor(
+                gridFile(random).toString()));
+
+        KDTree tree = graph.getSpatialIndex().copy();
+
+        for(int round = 0; round < 3; round++){
+
+            List<Integer> order = new ArrayList<Integer>();
+
+            for(int v = 0; v < graph.size(); v++){
+                order.add(v);
+            }
+            Collections.shuffle(order, random);
+
+            for(int removed = 0; removed < order.size(); removed++){
+
+                int vertex = order.get(removed);
+
+                tree.remove(vertex);
+                graph.getVertex(vertex).setColor(Color.BLACK);
+
+                String context = "round " + round + " after " + (removed + 1)
+                        + " removals";
+
+                assertEquals(linearScan(graph, vertex), tree.nearest(vertex),
+                        context + " from " + vertex);
+
+                int other = random.nextInt(graph.size());
+
+                if(graph.getVertex(other).getColor() == Color.BLACK){
+                    assertEquals(linearScan(graph, other), tree.nearest(other),
+                            context + " from " + other);
+                }
+            }
+
+            tree.reset();
+            graph.resetAllDiscoveryValues(0);
+        }
+    }
+
+    /**
+     * Returns the nearest unvisited city found by the linear scan.
+     * @param graph of the cities.
+     * @param vertex index of the city to search from.
+     * @return index of the nearest unvisited city, or -1 if there is none.
+     */
+    private static int linearScan(Graph graph, int vertex){
+
+        Vertex nearest = graph.getMinimumEdge(graph.getVertex(vertex));
+
+        return nearest == null ? -1 : nearest.getIndex();
+    }
+
+    /**
+     * Writes a location file of a square grid of cities in a random order,
+     * with every third grid point holding two cities.
+     * @param random source of the order.
+     * @return location file.
+     * @throws IOException if the file cannot be written.
+     */
+    private Path gridFile(Random random) throws IOException {
+
+        List<String> points = new ArrayList<String>();
+
+        for(int i = 0; i < SIDE * SIDE; i++){
+
+            String point = (i % SIDE) * SPACING + " " + (i / SIDE) * SPACING;
+            points.add(point);
+
+            if(i % 3 == 0){
+                points.add(point);
+            }
+        }
+        Collections.shuffle(points, random);
+
+        Path file = folder.resolve("grid.txt");
+
+        try(BufferedWriter out = Files.newBufferedWriter(file)){
+
+            for(int i = 0; i < points.size(); i++){
+                out.write((i + 1) + " " + points.get(i));
+                out.newLine();
+            }
+        }
+
+        return file;
+    }
+}
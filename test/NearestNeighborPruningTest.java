@@ -0,0 +1,60 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that abandoning the starts of the repetitive nearest neighbor
+ * algorithm that cannot beat the best tour leaves its result unchanged.
+ */
+public class NearestNeighborPruningTest {
+
+    private static final String[] FILES = {"test-input-1.txt",
+            "test-input-3.txt", "test-input-5.txt", "tsp_example_1.txt",
+            "tsp_example_2.txt"};
+
+    /**
+     * Compares NNR with and without abandoned starts on the bundled files,
+     * one search thread and several.
+     */
+    @Test
+    public void pruningKeepsTheRepetitiveResult(){
+
+        for(String fileName: FILES){
+
+            Graph graph = new Graph();
+            graph.fillGraphContentsFromFile(new FileInputProcessor(fileName));
+
+            for(int threads: new int[]{1, 4}){
+
+                NearestNeighbor expected = repetitive(graph, threads, false);
+                NearestNeighbor actual = repetitive(graph, threads, true);
+                String context = fileName + " with " + threads + " threads";
+
+                assertEquals(expected.getDistance(), actual.getDistance(),
+                        context + " distance");
+                assertEquals(expected.getTour().get(0).getIdentifier(),
+                        actual.getTour().get(0).getIdentifier(),
+                        context + " start");
+            }
+        }
+    }
+
+    /**
+     * Runs the repetitive nearest neighbor algorithm on a graph.
+     * @param graph to run on.
+     * @param threads of the search.
+     * @param pruning true to abandon starts that cannot beat the best tour.
+     * @return the algorithm after its run.
+     */
+    private static NearestNeighbor repetitive(Graph graph, int threads,
+                                              boolean pruning){
+
+        NearestNeighbor nnr = new NearestNeighbor(graph);
+        nnr.setAlgorithmOptions(true, false);
+        nnr.setThreads(threads);
+        nnr.setPruning(pruning);
+        nnr.execute();
+
+        return nnr;
+    }
+}
@@ -0,0 +1,135 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the two-level list tour against the array tour, which is simple
+ * enough to trust. Both tours are given the same random 2-opt moves and must
+ * agree on next, prev and between after every move. The two-level tour may
+ * reverse the other path of a move, so it can end up running the other way
+ * around the same tour, and is then compared with the array tour backward.
+ */
+public class TwoLevelTourTest {
+
+    // Sizes around the segment sizes, and large enough to split and rebuild
+    private static final int[] SIZES = {5, 6, 8, 9, 17, 64, 65, 300, 2000};
+    private static final int MOVES = 2000;
+    private static final int SEED = 18;
+
+    /**
+     * Compares the tours created from random orders before any move.
+     */
+    @Test
+    public void matchesArrayTourWhenCreated(){
+
+        Random random = new Random(SEED);
+
+        for(int size: SIZES){
+
+            int[] order = shuffledOrder(size, random);
+
+            assertMatches(new ArrayTour(order), new TwoLevelTour(order),
+                    random, "size " + size);
+        }
+    }
+
+    /**
+     * Compares the tours after each of a series of random 2-opt moves, made
+     * forward and backward through the tour.
+     */
+    @Test
+    public void matchesArrayTourAfterRandomFlips(){
+
+        Random random = new Random(SEED);
+
+        for(int size: SIZES){
+
+            int[] order = shuffledOrder(size, random);
+            ArrayTour expected = new ArrayTour(order);
+            TwoLevelTour actual = new TwoLevelTour(order);
+
+            for(int move = 0; move < MOVES; move++){
+
+                int a = random.nextInt(size);
+                int c = random.nextInt(size);
+                boolean forward = random.nextBoolean();
+                int b = forward ? actual.next(a) : actual.prev(a);
+                int d = forward ? actual.next(c) : actual.prev(c);
+
+                if(c == a || c == b || d == a){ // The edges must not touch
+                    continue;
+                }
+
+                expected.flip(a, b, c, d);
+                actual.flip(a, b, c, d);
+
+                assertMatches(expected, actual, random,
+                        "size " + size + " move " + move);
+            }
+        }
+    }
+
+    /**
+     * Checks that a tour answers next, prev and between as the array tour
+     * does, in the direction it runs compared with the array tour.
+     * @param expected array tour.
+     * @param actual two-level tour.
+     * @param random source of the vertices between is checked with.
+     * @param context of the check, for the failure message.
+     */
+    private static void assertMatches(Tour expected, Tour actual,
+                                      Random random, String context){
+
+        int size = expected.size();
+        assertEquals(size, actual.size(), context);
+
+        boolean sameWay = actual.next(0) == expected.next(0);
+
+        for(int v = 0; v < size; v++){
+
+            assertEquals(sameWay ? expected.next(v) : expected.prev(v),
+                    actual.next(v), context + " next of " + v);
+            assertEquals(sameWay ? expected.prev(v) : expected.next(v),
+                    actual.prev(v), context + " prev of " + v);
+        }
+
+        for(int i = 0; i < size; i++){
+
+            int a = random.nextInt(size);
+            int b = random.nextInt(size);
+            int c = random.nextInt(size);
+
+            assertEquals(sameWay ? expected.between(a, b, c)
+                            : expected.between(c, b, a),
+                    actual.between(a, b, c),
+                    context + " between " + a + " " + b + " " + c);
+        }
+    }
+
+    /**
+     * Returns the vertices 0 to size - 1 in a random order.
+     * @param size of the tour.
+     * @param random source of the order.
+     * @return vertex indices in random order.
+     */
+    private static int[] shuffledOrder(int size, Random random){
+
+        int[] order = new int[size];
+
+        for(int i = 0; i < size; i++){
+            order[i] = i;
+        }
+
+        for(int i = size - 1; i > 0; i--){
+
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+
+        return order;
+    }
+}